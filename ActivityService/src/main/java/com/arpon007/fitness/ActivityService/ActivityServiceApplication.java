@@ -2,10 +2,11 @@ package com.arpon007.fitness.ActivityService;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
-
+@EnableScheduling
 public class ActivityServiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,90 @@
+package com.arpon007.fitness.ActivityService.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import com.arpon007.fitness.ActivityService.model.ActivityMetrics;
+
+/**
+ * Stores {@link ActivityMetrics} as a sub-document with short field names. Going through
+ * these converters instead of the mapping layer also skips per-field reflection on every
+ * activity read and written.
+ */
+public final class ActivityMetricsConverters {
+    static final String HEART_RATE_AVG = "ha";
+    static final String HEART_RATE_MAX = "hm";
+    static final String DISTANCE = "d";
+    static final String PACE = "p";
+    static final String STEPS = "s";
+    static final String ELEVATION_GAIN = "e";
+    static final String OTHER = "x";
+
+    private ActivityMetricsConverters() {
+    }
+
+    public static List<Converter<?, ?>> all() {
+        return List.of(Writer.INSTANCE, Reader.INSTANCE);
+    }
+
+    @WritingConverter
+    public enum Writer implements Converter<ActivityMetrics, Document> {
+        INSTANCE;
+
+        @Override
+        public Document convert(ActivityMetrics metrics) {
+            Document document = new Document();
+            putIfPresent(document, HEART_RATE_AVG, metrics.getHeartRateAvg());
+            putIfPresent(document, HEART_RATE_MAX, metrics.getHeartRateMax());
+            putIfPresent(document, DISTANCE, metrics.getDistance());
+            putIfPresent(document, PACE, metrics.getPace());
+            putIfPresent(document, STEPS, metrics.getSteps());
+            putIfPresent(document, ELEVATION_GAIN, metrics.getElevationGain());
+            if (metrics.getOther() != null && !metrics.getOther().isEmpty()) {
+                document.put(OTHER, metrics.getOther());
+            }
+            return document;
+        }
+
+        private static void putIfPresent(Document document, String key, Object value) {
+            if (value != null) {
+                document.put(key, value);
+            }
+        }
+    }
+
+    @ReadingConverter
+    public enum Reader implements Converter<Document, ActivityMetrics> {
+        INSTANCE;
+
+        @Override
+        public ActivityMetrics convert(Document document) {
+            ActivityMetrics metrics = new ActivityMetrics();
+            metrics.setHeartRateAvg(asInteger(document.get(HEART_RATE_AVG)));
+            metrics.setHeartRateMax(asInteger(document.get(HEART_RATE_MAX)));
+            metrics.setDistance(asDouble(document.get(DISTANCE)));
+            metrics.setPace(asDouble(document.get(PACE)));
+            metrics.setSteps(asInteger(document.get(STEPS)));
+            metrics.setElevationGain(asDouble(document.get(ELEVATION_GAIN)));
+            if (document.get(OTHER) instanceof Map<?, ?> other) {
+                Map<String, Object> copy = new LinkedHashMap<>();
+                other.forEach((key, value) -> copy.put(String.valueOf(key), value));
+                metrics.setOther(copy);
+            }
+            return metrics;
+        }
+
+        private static Integer asInteger(Object value) {
+            return value instanceof Number number ? number.intValue() : null;
+        }
+
+        private static Double asDouble(Object value) {
+            return value instanceof Number number ? number.doubleValue() : null;
+        }
+    }
+}
@@ -1,9 +1,62 @@
 package com.arpon007.fitness.ActivityService.config;
 
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.Index;
+
+import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.ActivityService.model.ActivityRollup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 @Configuration
 @EnableMongoAuditing
+@EnableReactiveMongoAuditing
+@RequiredArgsConstructor
+@Slf4j
 public class MongoConfig {
+    private final MongoTemplate mongoTemplate;
+
+    // Static so the conversions do not depend on the template they configure
+    @Bean
+    public static MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(ActivityMetricsConverters.all());
+    }
+
+    // Serves the keyset-paginated activity listing: equality on userId, then startTime/_id descending
+    @EventListener(ApplicationReadyEvent.class)
+    public void createActivityIndexes() {
+        try {
+            mongoTemplate.indexOps(Activity.class).createIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("startTime", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.DESC)
+                    .named("userId_startTime_id"));
+        } catch (DataAccessException e) {
+            log.warn("Could not create activity indexes: {}", e.getMessage());
+        }
+    }
+
+    // Stats range queries: equality on userId and period, range on bucketStart
+    @EventListener(ApplicationReadyEvent.class)
+    public void createRollupIndexes() {
+        try {
+            mongoTemplate.indexOps(ActivityRollup.class).createIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("period", Sort.Direction.ASC)
+                    .on("bucketStart", Sort.Direction.ASC)
+                    .named("userId_period_bucketStart"));
+        } catch (DataAccessException e) {
+            log.warn("Could not create rollup indexes: {}", e.getMessage());
+        }
+    }
 }
@@ -1,6 +1,13 @@
 package com.arpon007.fitness.ActivityService.conterller;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -8,26 +15,96 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import com.arpon007.fitness.ActivityService.dto.ActivityPage;
 import com.arpon007.fitness.ActivityService.dto.ActivityRequest;
 import com.arpon007.fitness.ActivityService.dto.ActivityResponse;
+import com.arpon007.fitness.ActivityService.dto.ActivityStatsResponse;
+import com.arpon007.fitness.ActivityService.dto.BatchActivityResponse;
+import com.arpon007.fitness.ActivityService.model.RollupPeriod;
 import com.arpon007.fitness.ActivityService.service.ActivityService;
+import com.arpon007.fitness.ActivityService.service.ActivityStatsService;
+import com.arpon007.fitness.ActivityService.service.ExportTasks;
+import com.arpon007.fitness.ActivityService.service.ReactiveActivityService;
+import com.arpon007.fitness.events.avro.ActivityType;
 
-import lombok.AllArgsConstructor;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/api/activities")
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class ActivityController {
-    private ActivityService activityService;
+    private final ActivityService activityService;
+    private final ReactiveActivityService reactiveActivityService;
+    private final ActivityStatsService activityStatsService;
+    private final ExportTasks exportTasks;
+
+    // "blocking" (default) or "reactive"
+    @Value("${activity.ingest.mode:blocking}")
+    private String ingestMode;
 
     @PostMapping
-    public ResponseEntity<ActivityResponse> tractActivity(@RequestBody ActivityRequest request) {
-        return ResponseEntity.ok(activityService.tractActivity(request));
+    public Mono<ResponseEntity<ActivityResponse>> tractActivity(@RequestBody ActivityRequest request) {
+        if ("reactive".equalsIgnoreCase(ingestMode)) {
+            return reactiveActivityService.tractActivity(request).map(ResponseEntity::ok);
+        }
+        return Mono.just(ResponseEntity.ok(activityService.tractActivity(request)));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchActivityResponse> tractActivities(@RequestBody List<ActivityRequest> requests) {
+        return ResponseEntity.ok(activityService.tractActivities(requests));
     }
 
+    // The body stays a plain list; the cursor for the next page travels in X-Next-Cursor
     @GetMapping
-    public ResponseEntity<List<ActivityResponse>> getActivitiesByUser(@RequestParam String userId) {
-        return ResponseEntity.ok(activityService.getActivitiesByUser(userId));
+    public ResponseEntity<List<ActivityResponse>> getActivitiesByUser(
+            @RequestParam String userId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "true") boolean includeMetrics) {
+        ActivityPage page = activityService.getActivitiesByUser(userId, limit, after, from, to, includeMetrics);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<ActivityStatsResponse> getStats(
+            @RequestParam String userId,
+            @RequestParam(defaultValue = "WEEK") RollupPeriod period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) ActivityType type) {
+        return ResponseEntity.ok(activityStatsService.getStats(userId, period, from, to, type));
+    }
+
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportActivities(@RequestParam String userId,
+                                               @RequestParam(defaultValue = "false") boolean gzip,
+                                               HttpServletResponse response) {
+        WebAsyncTask<Void> export = exportTasks.start(() -> {
+            if (!gzip) {
+                activityService.exportActivities(userId, response.getOutputStream());
+                return null;
+            }
+            GZIPOutputStream gzipOut = new GZIPOutputStream(response.getOutputStream(), 8192);
+            activityService.exportActivities(userId, gzipOut);
+            gzipOut.finish();
+            return null;
+        });
+        // A gzip export is a .gz file rather than a compressed transfer of the NDJSON, so it
+        // carries no Content-Encoding that clients or proxies would undo
+        response.setContentType(gzip ? "application/gzip" : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"activities-" + userId + ".ndjson" + (gzip ? ".gz" : "") + "\"");
+        return export;
     }
 }
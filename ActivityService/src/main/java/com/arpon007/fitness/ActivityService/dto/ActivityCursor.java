@@ -0,0 +1,40 @@
+package com.arpon007.fitness.ActivityService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position for paging through a user's activities, ordered by
+ * {@code startTime} then {@code id}, both descending.
+ */
+@Getter
+@AllArgsConstructor
+public class ActivityCursor {
+    private static final String NO_START_TIME = "-";
+
+    private final LocalDateTime startTime;
+    private final String id;
+
+    public String encode() {
+        String raw = (startTime == null ? NO_START_TIME : startTime.toString()) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value was not produced by {@link #encode()}
+     */
+    public static ActivityCursor decode(String cursor) {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = raw.indexOf('|');
+        if (separator < 0 || separator == raw.length() - 1) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        String time = raw.substring(0, separator);
+        return new ActivityCursor(NO_START_TIME.equals(time) ? null : LocalDateTime.parse(time),
+                raw.substring(separator + 1));
+    }
+}
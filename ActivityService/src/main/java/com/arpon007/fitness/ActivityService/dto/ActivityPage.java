@@ -0,0 +1,16 @@
+package com.arpon007.fitness.ActivityService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of activities; {@code nextCursor} is {@code null} on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class ActivityPage {
+    private List<ActivityResponse> items;
+    private String nextCursor;
+}
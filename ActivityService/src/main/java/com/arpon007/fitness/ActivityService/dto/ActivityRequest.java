@@ -1,10 +1,10 @@
 package com.arpon007.fitness.ActivityService.dto;
 
-import com.arpon007.fitness.ActivityService.model.ActivityType;
+import com.arpon007.fitness.ActivityService.model.ActivityMetrics;
+import com.arpon007.fitness.events.avro.ActivityType;
 import lombok.Data;
 
 import java.time.LocalDateTime;
-import java.util.Map;
 
 @Data
 public class ActivityRequest {
@@ -13,5 +13,5 @@ public class ActivityRequest {
     private Integer duration;
     private Integer caloriesBurned;
     private LocalDateTime startTime;
-    private Map<String, Object> additionalMetrics;
+    private ActivityMetrics additionalMetrics;
 }
@@ -1,10 +1,10 @@
 package com.arpon007.fitness.ActivityService.dto;
 
-import com.arpon007.fitness.ActivityService.model.ActivityType;
+import com.arpon007.fitness.ActivityService.model.ActivityMetrics;
+import com.arpon007.fitness.events.avro.ActivityType;
 import lombok.Data;
 
 import java.time.LocalDateTime;
-import java.util.Map;
 
 @Data
 public class ActivityResponse {
@@ -14,7 +14,7 @@ public class ActivityResponse {
     private Integer duration;
     private Integer caloriesBurned;
     private LocalDateTime startTime;
-    private Map<String, Object> additionalMetrics;
+    private ActivityMetrics additionalMetrics;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
\ No newline at end of file
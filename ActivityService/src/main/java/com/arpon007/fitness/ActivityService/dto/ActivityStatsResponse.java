@@ -0,0 +1,23 @@
+package com.arpon007.fitness.ActivityService.dto;
+
+import com.arpon007.fitness.ActivityService.model.RollupPeriod;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Rollups of a user's activities between {@code from} and {@code to} (both inclusive,
+ * aligned to the start of their period) plus the totals over the whole range.
+ */
+@Data
+public class ActivityStatsResponse {
+    private String userId;
+    private RollupPeriod period;
+    private LocalDate from;
+    private LocalDate to;
+    private long count;
+    private long totalDuration;
+    private long totalCalories;
+    private List<ActivityStats> buckets;
+}
@@ -0,0 +1,17 @@
+package com.arpon007.fitness.ActivityService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchActivityResponse {
+    private int created;
+    private int rejected;
+    private int failed;
+    private List<BatchItemResult> results;
+}
@@ -0,0 +1,36 @@
+package com.arpon007.fitness.ActivityService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one entry of a batch upload; {@code index} is its position in the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+    public enum Status {
+        CREATED,
+        REJECTED,
+        FAILED
+    }
+
+    private int index;
+    private Status status;
+    private ActivityResponse activity;
+    private String error;
+
+    public static BatchItemResult created(int index, ActivityResponse activity) {
+        return new BatchItemResult(index, Status.CREATED, activity, null);
+    }
+
+    public static BatchItemResult rejected(int index, String error) {
+        return new BatchItemResult(index, Status.REJECTED, null, error);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, Status.FAILED, null, error);
+    }
+}
@@ -0,0 +1,14 @@
+package com.arpon007.fitness.ActivityService.dto;
+
+import lombok.Data;
+
+@Data
+public class UserEvent {
+    public enum Type {
+        CREATED,
+        DELETED
+    }
+
+    private String keycloakId;
+    private Type type;
+}
@@ -0,0 +1,49 @@
+package com.arpon007.fitness.ActivityService.events;
+
+import java.time.ZoneId;
+
+import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.events.ActivityEventMetrics;
+import com.arpon007.fitness.events.avro.ActivityEvent;
+import com.arpon007.fitness.events.avro.ActivityMetrics;
+
+/**
+ * Builds the {@code activity-events} contract from a stored {@link Activity}.
+ */
+public final class ActivityEventMapper {
+
+    private ActivityEventMapper() {
+    }
+
+    public static ActivityEvent toEvent(Activity activity) {
+        return ActivityEvent.newBuilder()
+                .setId(activity.getId())
+                .setUserId(activity.getUserId())
+                .setType(activity.getType())
+                .setDuration(activity.getDuration())
+                .setCaloriesBurned(activity.getCaloriesBurned())
+                .setStartTime(activity.getStartTime())
+                .setMetrics(toEvent(activity.getAdditionalMetrics()))
+                .setCreatedAt(activity.getCreatedAt())
+                .setUpdatedAt(activity.getUpdatedAt())
+                // createdAt is this JVM's local time, set by Mongo auditing
+                .setRecordedAt(activity.getCreatedAt() == null ? null
+                        : activity.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant())
+                .build();
+    }
+
+    private static ActivityMetrics toEvent(com.arpon007.fitness.ActivityService.model.ActivityMetrics metrics) {
+        if (metrics == null) {
+            return null;
+        }
+        return ActivityMetrics.newBuilder()
+                .setHeartRateAvg(metrics.getHeartRateAvg())
+                .setHeartRateMax(metrics.getHeartRateMax())
+                .setDistance(metrics.getDistance())
+                .setPace(metrics.getPace())
+                .setSteps(metrics.getSteps())
+                .setElevationGain(metrics.getElevationGain())
+                .setOther(ActivityEventMetrics.encodeOther(metrics.getOther()))
+                .build();
+    }
+}
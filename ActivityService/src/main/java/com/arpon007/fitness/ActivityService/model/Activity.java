@@ -1,6 +1,9 @@
 package com.arpon007.fitness.ActivityService.model;
 
 
+import com.arpon007.fitness.events.avro.ActivityType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,6 +11,7 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -28,12 +32,32 @@ public class Activity {
     private Integer caloriesBurned;
     private LocalDateTime startTime;
 
+    @Field("m")
+    @JsonIgnore
+    private ActivityMetrics metrics;
+
+    // Untyped layout written before ActivityMetrics; MetricsMigrationJob moves it to "m"
     @Field("metrics")
-    private Map<String, Object> additionalMetrics;
+    @JsonIgnore
+    private Map<String, Object> legacyMetrics;
 
     @CreatedDate
     private LocalDateTime createdAt;
 
     @LastModifiedDate
     private LocalDateTime updatedAt;
+
+    // Present until OutboxRelay has published the activity's event
+    @JsonIgnore
+    private OutboxEvent outbox;
+
+    /**
+     * The metrics of this activity, read from the legacy layout for documents that have
+     * not been migrated yet. Published to Kafka as {@code additionalMetrics}.
+     */
+    @Transient
+    @JsonProperty("additionalMetrics")
+    public ActivityMetrics getAdditionalMetrics() {
+        return metrics != null ? metrics : ActivityMetrics.fromMap(legacyMetrics);
+    }
 }
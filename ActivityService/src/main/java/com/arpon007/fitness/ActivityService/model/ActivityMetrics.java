@@ -0,0 +1,157 @@
+package com.arpon007.fitness.ActivityService.model;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import lombok.Data;
+
+/**
+ * Metrics recorded with an activity. The well-known metrics are typed fields; anything
+ * else a client sends is kept as is in {@link #getOther()}. In JSON this is still the
+ * flat {@code additionalMetrics} object clients and the AI service already use, and in
+ * Mongo it is written with short field names by {@code ActivityMetricsConverters}.
+ * <p>
+ * A well-known key only lands in its typed field when the value fits the type (a number,
+ * and a whole number for the integer fields); otherwise it goes to the overflow map, so
+ * e.g. a pace sent as {@code "8:39"} round-trips unchanged.
+ */
+@Data
+@JsonSerialize(using = ActivityMetrics.Serializer.class)
+@JsonDeserialize(using = ActivityMetrics.Deserializer.class)
+public class ActivityMetrics {
+    public static final String HEART_RATE_AVG = "heartRateAvg";
+    public static final String HEART_RATE_MAX = "heartRateMax";
+    public static final String DISTANCE = "distance";
+    public static final String PACE = "pace";
+    public static final String STEPS = "steps";
+    public static final String ELEVATION_GAIN = "elevationGain";
+
+    private Integer heartRateAvg;
+    private Integer heartRateMax;
+    private Double distance;
+    private Double pace;
+    private Integer steps;
+    private Double elevationGain;
+    private Map<String, Object> other;
+
+    public static ActivityMetrics fromMap(Map<String, ?> metrics) {
+        if (metrics == null) {
+            return null;
+        }
+        ActivityMetrics result = new ActivityMetrics();
+        metrics.forEach(result::put);
+        return result;
+    }
+
+    public void put(String key, Object value) {
+        if (!(value instanceof Number number) || !putNumber(key, number)) {
+            if (other == null) {
+                other = new LinkedHashMap<>();
+            }
+            other.put(key, value);
+        }
+    }
+
+    private boolean putNumber(String key, Number value) {
+        Integer whole = asInt(value);
+        switch (key) {
+            case HEART_RATE_AVG -> {
+                if (whole == null) {
+                    return false;
+                }
+                heartRateAvg = whole;
+            }
+            case HEART_RATE_MAX -> {
+                if (whole == null) {
+                    return false;
+                }
+                heartRateMax = whole;
+            }
+            case STEPS -> {
+                if (whole == null) {
+                    return false;
+                }
+                steps = whole;
+            }
+            case DISTANCE -> distance = value.doubleValue();
+            case PACE -> pace = value.doubleValue();
+            case ELEVATION_GAIN -> elevationGain = value.doubleValue();
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whole numbers in int range only, so 72.5 bpm is kept verbatim in the overflow map
+    private static Integer asInt(Number value) {
+        double d = value.doubleValue();
+        if (d != Math.rint(d) || d < Integer.MIN_VALUE || d > Integer.MAX_VALUE) {
+            return null;
+        }
+        return value.intValue();
+    }
+
+    static class Serializer extends JsonSerializer<ActivityMetrics> {
+        @Override
+        public void serialize(ActivityMetrics metrics, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartObject();
+            if (metrics.heartRateAvg != null) {
+                gen.writeNumberField(HEART_RATE_AVG, metrics.heartRateAvg);
+            }
+            if (metrics.heartRateMax != null) {
+                gen.writeNumberField(HEART_RATE_MAX, metrics.heartRateMax);
+            }
+            if (metrics.distance != null) {
+                gen.writeNumberField(DISTANCE, metrics.distance);
+            }
+            if (metrics.pace != null) {
+                gen.writeNumberField(PACE, metrics.pace);
+            }
+            if (metrics.steps != null) {
+                gen.writeNumberField(STEPS, metrics.steps);
+            }
+            if (metrics.elevationGain != null) {
+                gen.writeNumberField(ELEVATION_GAIN, metrics.elevationGain);
+            }
+            if (metrics.other != null) {
+                for (Map.Entry<String, Object> entry : metrics.other.entrySet()) {
+                    gen.writeFieldName(entry.getKey());
+                    provider.defaultSerializeValue(entry.getValue(), gen);
+                }
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    static class Deserializer extends JsonDeserializer<ActivityMetrics> {
+        @Override
+        public ActivityMetrics deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                return (ActivityMetrics) ctxt.handleUnexpectedToken(ActivityMetrics.class, p);
+            }
+            ActivityMetrics metrics = new ActivityMetrics();
+            for (JsonToken token = p.nextToken(); token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+                String key = p.currentName();
+                JsonToken value = p.nextToken();
+                if (value.isNumeric() && metrics.putNumber(key, p.getNumberValue())) {
+                    continue;
+                }
+                metrics.put(key, ctxt.readValue(p, Object.class));
+            }
+            return metrics;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.arpon007.fitness.ActivityService.model;
+
+import com.arpon007.fitness.events.avro.ActivityType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Totals of one user's activities of one type within one day, week or month. Documents
+ * are upserted with {@code $inc} as activities are tracked, under an id derived from
+ * (userId, period, bucketStart, type) so concurrent writers always hit the same document.
+ */
+@Document(collection = "activity_rollups")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivityRollup {
+    @Id
+    private String id;
+    private String userId;
+    private RollupPeriod period;
+    private LocalDate bucketStart;
+    private ActivityType type;
+    private long count;
+    private long totalDuration;
+    private long totalCalories;
+    private LocalDateTime updatedAt;
+
+    public static String idOf(String userId, RollupPeriod period, LocalDate bucketStart, ActivityType type) {
+        return userId + ":" + period + ":" + bucketStart + ":" + type;
+    }
+}
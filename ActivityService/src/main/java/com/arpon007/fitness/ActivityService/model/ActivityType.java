@@ -1,14 +0,0 @@
-package com.arpon007.fitness.ActivityService.model;
-
-public enum ActivityType {
-    RUNNING,
-    WALKING,
-    CYCLING,
-    SWIMMING,
-    WEIGHT_TRAINING,
-    YOGA,
-    HIIT,
-    CARDIO,
-    STRETCHING,
-    OTHER
-}
@@ -0,0 +1,36 @@
+package com.arpon007.fitness.ActivityService.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The event of an activity that has not been relayed to Kafka yet, stored inside the
+ * activity document ({@link Activity#getOutbox()}) so the activity and its event are
+ * written in one atomic insert. The relay removes it once the broker acknowledges the
+ * event; events that keep failing stay behind as {@link Status#DEAD}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent {
+    public enum Status {
+        PENDING,
+        DEAD
+    }
+
+    private Status status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private String lastError;
+
+    public static OutboxEvent pending() {
+        return OutboxEvent.builder()
+                .status(Status.PENDING)
+                .build();
+    }
+}
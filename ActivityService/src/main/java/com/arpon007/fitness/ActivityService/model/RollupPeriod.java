@@ -0,0 +1,33 @@
+package com.arpon007.fitness.ActivityService.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Granularity of an {@link ActivityRollup}. Weeks start on Monday (ISO-8601).
+ */
+public enum RollupPeriod {
+    DAY(ChronoUnit.DAYS),
+    WEEK(ChronoUnit.WEEKS),
+    MONTH(ChronoUnit.MONTHS);
+
+    private final ChronoUnit unit;
+
+    RollupPeriod(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public LocalDate bucketStart(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+
+    public ChronoUnit unit() {
+        return unit;
+    }
+}
@@ -1,62 +1,261 @@
 package com.arpon007.fitness.ActivityService.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.arpon007.fitness.ActivityService.dto.ActivityCursor;
+import com.arpon007.fitness.ActivityService.dto.ActivityPage;
 import com.arpon007.fitness.ActivityService.dto.ActivityRequest;
 import com.arpon007.fitness.ActivityService.dto.ActivityResponse;
+import com.arpon007.fitness.ActivityService.dto.BatchActivityResponse;
+import com.arpon007.fitness.ActivityService.dto.BatchItemResult;
 import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.ActivityService.model.OutboxEvent;
 import com.arpon007.fitness.ActivityService.repo.ActivityRepo;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
 public class ActivityService {
     private final ActivityRepo activityRepo;
+    private final MongoTemplate mongoTemplate;
     private final UserValidationService userValidationService;
-    private final KafkaTemplate<String,Activity> kafkaTemplate;
+    private final ActivityStatsService activityStatsService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${activity.batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${activity.query.default-limit:100}")
+    private int defaultLimit;
 
-    @Value("${kafka.topic.name}")
-    private String topicName;
+    @Value("${activity.query.max-limit:1000}")
+    private int maxLimit;
+
+    @Value("${activity.export.cursor-batch-size:500}")
+    private int exportBatchSize;
 
     public ActivityResponse tractActivity(ActivityRequest request) {
         boolean isValidUser = userValidationService.validateUser(request.getUserId());
         if(!isValidUser) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid User ID: " + request.getUserId());
         }
-        Activity activity = Activity.builder()
-                .userId(request.getUserId())
-                .type(request.getType())
-                .duration(request.getDuration())
-                .caloriesBurned(request.getCaloriesBurned())
-                .startTime(request.getStartTime())
-                .additionalMetrics(request.getAdditionalMetrics())
-                .build();
+        Activity savedActivity = activityRepo.save(toActivity(request));
+        activityStatsService.record(savedActivity);
+
+        return mapToResponse(savedActivity);
+    }
+
+    /**
+     * Bulk variant of {@link #tractActivity} for device syncs: every distinct user is
+     * validated once, all accepted activities go to Mongo in a single unordered
+     * insertMany, and the result reports the outcome of each entry by position.
+     */
+    public BatchActivityResponse tractActivities(List<ActivityRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch exceeds " + maxBatchSize + " activities");
+        }
+        Map<String, Boolean> validUsers = userValidationService.validateUsers(
+                requests.stream().map(ActivityRequest::getUserId).toList());
+
+        BatchItemResult[] results = new BatchItemResult[requests.size()];
+        List<Integer> positions = new ArrayList<>();
+        List<Activity> activities = new ArrayList<>();
+        List<Document> documents = new ArrayList<>();
+        // insertMany bypasses the template's auditing callbacks, so stamp the timestamps here
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < requests.size(); i++) {
+            ActivityRequest request = requests.get(i);
+            if (!validUsers.getOrDefault(request.getUserId(), false)) {
+                results[i] = BatchItemResult.rejected(i, "Invalid User ID: " + request.getUserId());
+                continue;
+            }
+            Activity activity = toActivity(request);
+            activity.setCreatedAt(now);
+            activity.setUpdatedAt(now);
+            Document document = new Document();
+            mongoTemplate.getConverter().write(activity, document);
+            positions.add(i);
+            activities.add(activity);
+            documents.add(document);
+        }
+
+        Map<Integer, String> writeErrors = new HashMap<>();
+        List<Activity> savedActivities = new ArrayList<>();
+        if (!documents.isEmpty()) {
+            try {
+                mongoTemplate.getCollection(mongoTemplate.getCollectionName(Activity.class))
+                        .insertMany(documents, new InsertManyOptions().ordered(false));
+            } catch (MongoBulkWriteException e) {
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    writeErrors.put(error.getIndex(), error.getMessage());
+                }
+            }
+        }
+
+        for (int j = 0; j < documents.size(); j++) {
+            int index = positions.get(j);
+            String error = writeErrors.get(j);
+            if (error != null) {
+                results[index] = BatchItemResult.failed(index, error);
+                continue;
+            }
+            Activity savedActivity = activities.get(j);
+            // The driver assigns _id on the document it inserted
+            savedActivity.setId(documents.get(j).getObjectId("_id").toHexString());
+            savedActivities.add(savedActivity);
+            results[index] = BatchItemResult.created(index, mapToResponse(savedActivity));
+        }
+
+        if (!savedActivities.isEmpty()) {
+            activityStatsService.record(savedActivities);
+        }
+
+        int created = documents.size() - writeErrors.size();
+        return new BatchActivityResponse(created, requests.size() - documents.size(), writeErrors.size(),
+                Arrays.asList(results));
+    }
+
+    /**
+     * Returns one page of a user's activities, newest first, using keyset pagination on
+     * (userId, startTime, id) so each page costs the same however deep the client goes.
+     * Without {@code limit} and {@code after} every activity is returned in one page, as
+     * before pagination existed. {@code from} is inclusive and {@code to} exclusive;
+     * activities without a start time sort last and are left out when a time range is given.
+     */
+    public ActivityPage getActivitiesByUser(String userId, Integer limit, String after,
+                                            LocalDateTime from, LocalDateTime to, boolean includeMetrics) {
+        boolean paged = limit != null || (after != null && !after.isBlank());
+        int pageSize = Math.min(Math.max(limit == null ? defaultLimit : limit, 1), maxLimit);
+
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (from != null || to != null) {
+            Criteria startTime = criteria.and("startTime");
+            if (from != null) {
+                startTime.gte(from);
+            }
+            if (to != null) {
+                startTime.lt(to);
+            }
+        }
+        if (after != null && !after.isBlank()) {
+            criteria.andOperator(afterCursor(decodeCursor(after)));
+        }
+
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "startTime", "id"));
+        if (paged) {
+            query.limit(pageSize + 1);
+        }
+        if (!includeMetrics) {
+            query.fields().exclude("metrics").exclude("legacyMetrics");
+        }
+
+        List<Activity> activities = mongoTemplate.find(query, Activity.class);
+        String nextCursor = null;
+        if (paged && activities.size() > pageSize) {
+            activities = activities.subList(0, pageSize);
+            Activity last = activities.get(pageSize - 1);
+            nextCursor = new ActivityCursor(last.getStartTime(), last.getId()).encode();
+        }
+        return new ActivityPage(activities.stream()
+                .map(ActivityService::mapToResponse)
+                .collect(java.util.stream.Collectors.toList()), nextCursor);
+    }
+
+    /**
+     * Writes every activity of the user to {@code out} as newline-delimited JSON, oldest
+     * first. Documents are pulled from a Mongo cursor as the stream is written, so memory
+     * use does not depend on the size of the history and a slow reader slows the cursor.
+     */
+    public void exportActivities(String userId, OutputStream out) throws IOException {
+        Query query = new Query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.ASC, "startTime", "id"))
+                .cursorBatchSize(exportBatchSize);
+        // Leave the response stream open for the caller, who may still need to finish a gzip trailer
+        ObjectWriter writer = objectMapper.writerFor(ActivityResponse.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        boolean empty = true;
+        try (Stream<Activity> activities = mongoTemplate.stream(query, Activity.class);
+             SequenceWriter sequence = writer.writeValues(out)) {
+            for (Activity activity : (Iterable<Activity>) activities::iterator) {
+                sequence.write(mapToResponse(activity));
+                empty = false;
+            }
+        }
+        if (!empty) {
+            out.write('\n');
+        }
+        out.flush();
+    }
 
-        Activity savedActivity = activityRepo.save(activity);
+    private static ActivityCursor decodeCursor(String after) {
         try {
-            kafkaTemplate.send(topicName, savedActivity.getUserId(), savedActivity);
-        } catch(Exception e) {
-            e.printStackTrace();
+            return ActivityCursor.decode(after);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + after);
         }
+    }
 
-        return mapToResponse(savedActivity);
+    // Everything strictly after the cursor in (startTime desc, id desc) order; Mongo sorts
+    // null start times below any date, so they always come after a dated cursor
+    private static Criteria afterCursor(ActivityCursor cursor) {
+        if (cursor.getStartTime() == null) {
+            return new Criteria().andOperator(
+                    Criteria.where("startTime").is(null),
+                    Criteria.where("id").lt(cursor.getId()));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("startTime").lt(cursor.getStartTime()),
+                new Criteria().andOperator(
+                        Criteria.where("startTime").is(cursor.getStartTime()),
+                        Criteria.where("id").lt(cursor.getId())),
+                Criteria.where("startTime").is(null));
     }
 
-    public List<ActivityResponse> getActivitiesByUser(String userId) {
-        List<Activity> activities = activityRepo.findByUserId(userId);
-        return activities.stream()
-                .map(this::mapToResponse)
-                .collect(java.util.stream.Collectors.toList());
+    // Carries its pending event, so OutboxRelay relays it to Kafka: a broker outage neither
+    // slows nor loses the request, and no crash can store the activity without its event
+    static Activity toActivity(ActivityRequest request) {
+        return Activity.builder()
+                .userId(request.getUserId())
+                .type(request.getType())
+                .duration(request.getDuration())
+                .caloriesBurned(request.getCaloriesBurned())
+                .startTime(request.getStartTime())
+                .metrics(request.getAdditionalMetrics())
+                .outbox(OutboxEvent.pending())
+                .build();
     }
 
-    private ActivityResponse mapToResponse(Activity activity) {
+    static ActivityResponse mapToResponse(Activity activity) {
         ActivityResponse response = new ActivityResponse();
         response.setId(activity.getId());
         response.setUserId(activity.getUserId());
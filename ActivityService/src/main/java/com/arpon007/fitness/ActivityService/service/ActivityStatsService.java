@@ -0,0 +1,179 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.arpon007.fitness.ActivityService.dto.ActivityStats;
+import com.arpon007.fitness.ActivityService.dto.ActivityStatsResponse;
+import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.ActivityService.model.ActivityRollup;
+import com.arpon007.fitness.ActivityService.model.RollupPeriod;
+import com.arpon007.fitness.events.avro.ActivityType;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the per-user daily, weekly and monthly {@link ActivityRollup}s up to date as
+ * activities are tracked and serves them, so dashboards read a handful of buckets
+ * instead of every activity. Rollup writes happen after the activity is stored and a
+ * failure is only logged; {@link StatsRebuildJob} recomputes rollups from the raw data.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityStatsService {
+    private final MongoTemplate mongoTemplate;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Value("${activity.stats.max-buckets:400}")
+    private int maxBuckets;
+
+    public void record(Activity activity) {
+        record(List.of(activity));
+    }
+
+    /**
+     * Adds the activities to their rollups with one unordered bulk write; activities of a
+     * batch that share a bucket are summed first, so each bucket is upserted once.
+     */
+    public void record(List<Activity> activities) {
+        Collection<ActivityRollup> deltas = rollUp(activities);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityRollup.class);
+            LocalDateTime now = LocalDateTime.now();
+            deltas.forEach(delta -> bulk.upsert(byId(delta), increment(delta, now)));
+            bulk.execute();
+        } catch (DataAccessException e) {
+            log.error("Could not update rollups for {} activities: {}", activities.size(), e.getMessage());
+        }
+    }
+
+    public Mono<Void> recordReactive(Activity activity) {
+        Collection<ActivityRollup> deltas = rollUp(List.of(activity));
+        ReactiveBulkOperations bulk = reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityRollup.class);
+        LocalDateTime now = LocalDateTime.now();
+        deltas.forEach(delta -> bulk.upsert(byId(delta), increment(delta, now)));
+        return bulk.execute()
+                .onErrorResume(DataAccessException.class, e -> {
+                    log.error("Could not update rollups for activity {}: {}", activity.getId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Returns the user's rollups for every bucket touching [from, to]. Without a range the
+     * last 30 days, 12 weeks or 12 months up to today are returned.
+     */
+    public ActivityStatsResponse getStats(String userId, RollupPeriod period, LocalDate from, LocalDate to,
+                                          ActivityType type) {
+        LocalDate end = period.bucketStart(to != null ? to : LocalDate.now());
+        LocalDate start = from != null ? period.bucketStart(from)
+                : end.minus(period == RollupPeriod.DAY ? 29 : 11, period.unit());
+        if (start.isAfter(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+        if (period.unit().between(start, end) >= maxBuckets) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Range exceeds " + maxBuckets + " " + period + " buckets");
+        }
+
+        Criteria criteria = Criteria.where("userId").is(userId)
+                .and("period").is(period)
+                .and("bucketStart").gte(start).lte(end);
+        if (type != null) {
+            criteria.and("type").is(type);
+        }
+        List<ActivityRollup> rollups = mongoTemplate.find(new Query(criteria)
+                .with(Sort.by("bucketStart", "type")), ActivityRollup.class);
+
+        ActivityStatsResponse response = new ActivityStatsResponse();
+        response.setUserId(userId);
+        response.setPeriod(period);
+        response.setFrom(start);
+        response.setTo(end);
+        response.setBuckets(rollups.stream()
+                .map(rollup -> new ActivityStats(rollup.getBucketStart(), rollup.getType(), rollup.getCount(),
+                        rollup.getTotalDuration(), rollup.getTotalCalories()))
+                .toList());
+        for (ActivityRollup rollup : rollups) {
+            response.setCount(response.getCount() + rollup.getCount());
+            response.setTotalDuration(response.getTotalDuration() + rollup.getTotalDuration());
+            response.setTotalCalories(response.getTotalCalories() + rollup.getTotalCalories());
+        }
+        return response;
+    }
+
+    /**
+     * Sums the activities into one rollup per (user, period, bucket, type). Activities are
+     * bucketed by start time, or by creation time when they have none.
+     */
+    static Collection<ActivityRollup> rollUp(Iterable<Activity> activities) {
+        Map<String, ActivityRollup> rollups = new LinkedHashMap<>();
+        for (Activity activity : activities) {
+            LocalDateTime time = activity.getStartTime() != null ? activity.getStartTime() : activity.getCreatedAt();
+            if (time == null || activity.getUserId() == null) {
+                continue;
+            }
+            ActivityType type = activity.getType() != null ? activity.getType() : ActivityType.OTHER;
+            for (RollupPeriod period : RollupPeriod.values()) {
+                LocalDate bucketStart = period.bucketStart(time.toLocalDate());
+                ActivityRollup rollup = rollups.computeIfAbsent(
+                        ActivityRollup.idOf(activity.getUserId(), period, bucketStart, type),
+                        id -> ActivityRollup.builder()
+                                .id(id)
+                                .userId(activity.getUserId())
+                                .period(period)
+                                .bucketStart(bucketStart)
+                                .type(type)
+                                .build());
+                rollup.setCount(rollup.getCount() + 1);
+                rollup.setTotalDuration(rollup.getTotalDuration() + valueOf(activity.getDuration()));
+                rollup.setTotalCalories(rollup.getTotalCalories() + valueOf(activity.getCaloriesBurned()));
+            }
+        }
+        return rollups.values();
+    }
+
+    private static Query byId(ActivityRollup delta) {
+        return new Query(Criteria.where("_id").is(delta.getId()));
+    }
+
+    private static Update increment(ActivityRollup delta, LocalDateTime now) {
+        return new Update()
+                .inc("count", delta.getCount())
+                .inc("totalDuration", delta.getTotalDuration())
+                .inc("totalCalories", delta.getTotalCalories())
+                .set("updatedAt", now)
+                .setOnInsert("userId", delta.getUserId())
+                .setOnInsert("period", delta.getPeriod())
+                .setOnInsert("bucketStart", delta.getBucketStart())
+                .setOnInsert("type", delta.getType());
+    }
+
+    private static long valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+}
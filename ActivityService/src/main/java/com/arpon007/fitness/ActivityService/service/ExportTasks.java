@@ -0,0 +1,70 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs exports ({@code GET /api/activities/export}) on threads of their own. An export holds
+ * its thread for as long as the client keeps reading, so at most {@code activity.export.max-concurrent}
+ * run at once, each limited to {@code activity.export.timeout}, and the shared applicationTaskExecutor
+ * and the default async request timeout stay as they are for everything else.
+ */
+@Component
+public class ExportTasks {
+    // Deliberately not a bean: any Executor bean makes Boot back off from applicationTaskExecutor
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final Semaphore slots;
+    private final Duration timeout;
+
+    public ExportTasks(@Value("${activity.export.max-concurrent:4}") int maxConcurrent,
+                       @Value("${activity.export.timeout:30m}") Duration timeout) {
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setThreadNamePrefix("activity-export-");
+        executor.initialize();
+        this.slots = new Semaphore(maxConcurrent);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Wraps {@code export} for a controller to return, or answers {@code 503} right away when
+     * every export slot is taken.
+     */
+    public WebAsyncTask<Void> start(Callable<Void> export) {
+        if (!slots.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many exports in progress");
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        };
+        WebAsyncTask<Void> task = new WebAsyncTask<>(timeout.toMillis(), executor, () -> {
+            try {
+                return export.call();
+            } finally {
+                release.run();
+            }
+        });
+        // Also covers a task that never got to run
+        task.onCompletion(release);
+        return task;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
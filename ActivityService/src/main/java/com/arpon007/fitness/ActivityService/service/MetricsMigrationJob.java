@@ -0,0 +1,125 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.arpon007.fitness.ActivityService.config.ActivityMetricsConverters;
+import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.ActivityService.model.ActivityMetrics;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves activities from the untyped {@code metrics} map to the compact {@code m}
+ * sub-document while the service keeps running. Documents are walked in {@code _id}
+ * order in batches of {@code activity.metrics-migration.batch-size}, with a pause between
+ * batches to leave headroom for live traffic. Each update only applies while the legacy
+ * field is still there, so the job can be stopped and restarted at any point; until a
+ * document is migrated it is still read through {@link Activity#getAdditionalMetrics()}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MetricsMigrationJob {
+    private static final String LEGACY_FIELD = "metrics";
+    private static final String FIELD = "m";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${activity.metrics-migration.on-startup:false}")
+    private boolean migrateOnStartup;
+
+    @Value("${activity.metrics-migration.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${activity.metrics-migration.pause:100ms}")
+    private Duration pause;
+
+    // Runs beside request handling rather than holding up the remaining startup listeners
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (migrateOnStartup) {
+            Thread.ofPlatform().name("metrics-migration").daemon().start(this::migrateAll);
+        }
+    }
+
+    public long migrateAll() {
+        long started = System.nanoTime();
+        MongoCollection<Document> activities = mongoTemplate.getCollection(
+                mongoTemplate.getCollectionName(Activity.class));
+        long migrated = 0;
+        Object lastId = null;
+        try {
+            while (true) {
+                Bson filter = Filters.exists(LEGACY_FIELD);
+                if (lastId != null) {
+                    filter = Filters.and(Filters.gt("_id", lastId), filter);
+                }
+                List<Document> batch = activities.find(filter)
+                        .projection(Projections.include(LEGACY_FIELD))
+                        .sort(Sorts.ascending("_id"))
+                        .limit(batchSize)
+                        .into(new ArrayList<>(batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                List<WriteModel<Document>> updates = new ArrayList<>(batch.size());
+                for (Document document : batch) {
+                    updates.add(new UpdateOneModel<>(
+                            Filters.and(Filters.eq("_id", document.get("_id")), Filters.exists(LEGACY_FIELD)),
+                            migrate(document.get(LEGACY_FIELD))));
+                }
+                migrated += activities.bulkWrite(updates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+                lastId = batch.get(batch.size() - 1).get("_id");
+                log.debug("Migrated activity metrics up to _id {}", lastId instanceof ObjectId id ? id.toHexString() : lastId);
+                if (!pause.isZero()) {
+                    Thread.sleep(pause.toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Activity metrics migration interrupted after {} documents", migrated);
+            return migrated;
+        } catch (MongoException | DataAccessException e) {
+            log.warn("Activity metrics migration stopped after {} documents: {}", migrated, e.getMessage());
+            return migrated;
+        }
+        log.info("Migrated metrics of {} activities in {} ms", migrated,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+        return migrated;
+    }
+
+    // A legacy value that is not a map (only ever an explicit null) has nothing to carry over
+    static Bson migrate(Object legacy) {
+        if (!(legacy instanceof Map<?, ?> map)) {
+            return Updates.unset(LEGACY_FIELD);
+        }
+        ActivityMetrics metrics = new ActivityMetrics();
+        map.forEach((key, value) -> metrics.put(String.valueOf(key), value));
+        return Updates.combine(
+                Updates.set(FIELD, ActivityMetricsConverters.Writer.INSTANCE.convert(metrics)),
+                Updates.unset(LEGACY_FIELD));
+    }
+}
@@ -0,0 +1,283 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.arpon007.fitness.ActivityService.events.ActivityEventMapper;
+import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.ActivityService.model.OutboxEvent;
+import com.arpon007.fitness.events.avro.ActivityEvent;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Relays the events of newly stored activities ({@link Activity#getOutbox()}) to the
+ * activity topics. Activities that started within {@code activity.events.live-window} of
+ * being recorded go to the live topic; older ones (history imports, late device syncs) go
+ * to the backfill topic so that a large import does not queue ahead of workouts that just
+ * finished. Events for one user are sent in insertion order, one at a time: the next one
+ * only goes out once the broker has acknowledged the previous one, and once an event for a
+ * key fails or is waiting for its retry, later events for that key are held back until it
+ * goes through. Events for different users are sent together. Delivery is at-least-once.
+ *
+ * <p>Only one instance relays at a time, coordinated through a lease document.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+    private static final String LEASE_COLLECTION = "activity_outbox_lease";
+    private static final String LEASE_ID = "activity-outbox-relay";
+    private static final String LEGACY_COLLECTION = "activity_outbox";
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, ActivityEvent> kafkaTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter published;
+    private final Counter failed;
+    private final Counter dead;
+
+    @Value("${kafka.topic.name}")
+    private String topicName;
+
+    @Value("${kafka.topic.backfill}")
+    private String backfillTopicName;
+
+    @Value("${activity.events.live-window:6h}")
+    private Duration liveWindow;
+
+    @Value("${activity.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${activity.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${activity.outbox.retry-backoff:1s}")
+    private Duration retryBackoff;
+
+    @Value("${activity.outbox.max-retry-backoff:5m}")
+    private Duration maxRetryBackoff;
+
+    @Value("${activity.outbox.send-timeout:30s}")
+    private Duration sendTimeout;
+
+    @Value("${activity.outbox.lease:30s}")
+    private Duration lease;
+
+    public OutboxRelay(MongoTemplate mongoTemplate, KafkaTemplate<String, ActivityEvent> kafkaTemplate,
+                       MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        Gauge.builder("activity.outbox.lag", lagMillis, lag -> lag.get() / 1000.0)
+                .description("Age of the oldest activity event not yet relayed to Kafka")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("activity.outbox.pending", pending, AtomicLong::get)
+                .description("Activity events fetched but not yet relayed in the last relay pass")
+                .register(meterRegistry);
+        this.published = Counter.builder("activity.outbox.published").register(meterRegistry);
+        this.failed = Counter.builder("activity.outbox.failed").register(meterRegistry);
+        this.dead = Counter.builder("activity.outbox.dead").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        try {
+            mongoTemplate.indexOps(Activity.class).createIndex(new Index()
+                    .on("outbox.status", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(where("outbox.status").exists(true)))
+                    .named("outbox_status_id"));
+        } catch (DataAccessException e) {
+            log.warn("Could not create outbox index: {}", e.getMessage());
+        }
+    }
+
+    // Events written before they moved into the activity document sat in a collection of
+    // their own; hand each one to its activity so the relay picks it up, then drop the entry
+    @EventListener(ApplicationReadyEvent.class)
+    public void adoptLegacyOutbox() {
+        try {
+            if (!mongoTemplate.collectionExists(LEGACY_COLLECTION)) {
+                return;
+            }
+            MongoCollection<Document> legacy = mongoTemplate.getCollection(LEGACY_COLLECTION);
+            MongoCollection<Document> activities = mongoTemplate.getCollection(
+                    mongoTemplate.getCollectionName(Activity.class));
+            long adopted = 0;
+            for (Document entry : legacy.find()) {
+                Document payload = entry.get("payload", Document.class);
+                if (payload != null && payload.get("_id") != null) {
+                    Document outbox = new Document("status", entry.get("status"))
+                            .append("attempts", entry.get("attempts", 0))
+                            .append("nextAttemptAt", entry.get("nextAttemptAt"))
+                            .append("lastError", entry.get("lastError"));
+                    activities.updateOne(Filters.eq("_id", payload.get("_id")), Updates.set("outbox", outbox));
+                    adopted++;
+                }
+                legacy.deleteOne(Filters.eq("_id", entry.get("_id")));
+            }
+            mongoTemplate.dropCollection(LEGACY_COLLECTION);
+            log.info("Moved {} events from {} into their activities", adopted, LEGACY_COLLECTION);
+        } catch (DataAccessException | MongoException e) {
+            log.warn("Could not move events from {}: {}", LEGACY_COLLECTION, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${activity.outbox.poll-interval:200ms}")
+    public void relay() {
+        try {
+            if (acquireLease()) {
+                relayBatch();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Outbox relay pass failed: {}", e.getMessage());
+        }
+    }
+
+    private void relayBatch() {
+        List<Activity> batch = mongoTemplate.find(
+                query(where("outbox.status").is(OutboxEvent.Status.PENDING)).with(Sort.by("_id")).limit(batchSize),
+                Activity.class);
+        pending.set(batch.size());
+        lagMillis.set(batch.isEmpty() || batch.get(0).getCreatedAt() == null ? 0
+                : Duration.between(batch.get(0).getCreatedAt(), LocalDateTime.now()).toMillis());
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> heldKeys = new HashSet<>();
+        Map<String, Deque<Activity>> queues = new LinkedHashMap<>();
+        for (Activity activity : batch) {
+            String key = activity.getUserId();
+            if (heldKeys.contains(key)) {
+                continue;
+            }
+            LocalDateTime nextAttemptAt = activity.getOutbox().getNextAttemptAt();
+            if (nextAttemptAt != null && nextAttemptAt.isAfter(now)) {
+                heldKeys.add(key);
+                continue;
+            }
+            queues.computeIfAbsent(key, k -> new ArrayDeque<>()).add(activity);
+        }
+
+        // Each round sends the oldest remaining event of every user and waits for the acks
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        List<String> delivered = new ArrayList<>();
+        while (!queues.isEmpty() && System.nanoTime() < deadline) {
+            List<Activity> round = new ArrayList<>(queues.size());
+            List<CompletableFuture<?>> acks = new ArrayList<>(queues.size());
+            for (Deque<Activity> queue : queues.values()) {
+                Activity activity = queue.poll();
+                round.add(activity);
+                acks.add(kafkaTemplate.send(topicFor(activity), activity.getUserId(), ActivityEventMapper.toEvent(activity)));
+            }
+            queues.values().removeIf(Deque::isEmpty);
+            // The acks are awaited right away, so there is nothing to gain from linger.ms
+            kafkaTemplate.flush();
+
+            for (int i = 0; i < round.size(); i++) {
+                Activity activity = round.get(i);
+                try {
+                    acks.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    delivered.add(activity.getId());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    queues.clear();
+                    break;
+                } catch (Exception e) {
+                    scheduleRetry(activity, e);
+                    queues.remove(activity.getUserId());
+                }
+            }
+        }
+
+        if (!delivered.isEmpty()) {
+            mongoTemplate.updateMulti(query(where("_id").in(delivered)), new Update().unset("outbox"), Activity.class);
+            published.increment(delivered.size());
+        }
+    }
+
+    // Decided from the activity itself rather than relay time, so a slow relay does not demote live events
+    String topicFor(Activity activity) {
+        if (activity.getStartTime() == null || activity.getCreatedAt() == null) {
+            return topicName;
+        }
+        return activity.getStartTime().isBefore(activity.getCreatedAt().minus(liveWindow))
+                ? backfillTopicName : topicName;
+    }
+
+    private void scheduleRetry(Activity activity, Exception cause) {
+        failed.increment();
+        int attempts = activity.getOutbox().getAttempts() + 1;
+        Update update = new Update()
+                .set("outbox.attempts", attempts)
+                .set("outbox.lastError", String.valueOf(cause.getMessage()));
+        if (attempts >= maxAttempts) {
+            log.error("Giving up on the event for activity {} after {} attempts", activity.getId(), attempts);
+            update.set("outbox.status", OutboxEvent.Status.DEAD);
+            dead.increment();
+        } else {
+            long backoff = Math.min(maxRetryBackoff.toMillis(), retryBackoff.toMillis() << Math.min(attempts - 1, 20));
+            update.set("outbox.nextAttemptAt", LocalDateTime.now().plus(Duration.ofMillis(backoff)));
+        }
+        mongoTemplate.updateFirst(query(where("_id").is(activity.getId())), update, Activity.class);
+    }
+
+    private boolean acquireLease() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = query(where("_id").is(LEASE_ID)
+                .orOperator(where("owner").is(instanceId), where("leaseUntil").lt(now)));
+        Update update = new Update()
+                .set("owner", instanceId)
+                .set("leaseUntil", now.plus(lease));
+        try {
+            mongoTemplate.upsert(query, update, LEASE_COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Another instance holds a live lease
+            return false;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.arpon007.fitness.ActivityService.dto.ActivityRequest;
+import com.arpon007.fitness.ActivityService.dto.ActivityResponse;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link ActivityService#tractActivity}: validation, the Mongo
+ * insert (which carries the outbox event) and the rollup update are chained so no request thread waits on I/O. Used when
+ * {@code activity.ingest.mode=reactive}.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReactiveActivityService {
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final UserValidationService userValidationService;
+    private final ActivityStatsService activityStatsService;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${activity.ingest.max-in-flight:512}")
+    private int maxInFlight;
+
+    public Mono<ActivityResponse> tractActivity(ActivityRequest request) {
+        return Mono.defer(() -> {
+            // Shed load instead of queueing without bound once the pipeline is saturated
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many activities in flight"));
+            }
+            return userValidationService.validateUserReactive(request.getUserId())
+                    // No answer is no valid user, as on the blocking path; otherwise the request ends in an empty 200
+                    .switchIfEmpty(Mono.error(() -> invalidUser(request)))
+                    .flatMap(isValidUser -> {
+                        if (!isValidUser) {
+                            return Mono.error(invalidUser(request));
+                        }
+                        return reactiveMongoTemplate.insert(ActivityService.toActivity(request));
+                    })
+                    .flatMap(savedActivity -> activityStatsService.recordReactive(savedActivity)
+                            .thenReturn(savedActivity))
+                    .map(ActivityService::mapToResponse)
+                    .doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    private static ResponseStatusException invalidUser(ActivityRequest request) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid User ID: " + request.getUserId());
+    }
+}
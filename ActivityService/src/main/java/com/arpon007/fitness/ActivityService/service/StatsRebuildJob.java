@@ -0,0 +1,194 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.ActivityService.model.ActivityRollup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recomputes every user's rollups from the raw activities, e.g. after rollups were
+ * introduced or a rollup write was lost. Users are streamed from Mongo and handed out in
+ * chunks of {@code activity.stats.rebuild.chunk-size} to
+ * {@code activity.stats.rebuild.parallelism} workers. The rebuild runs beside live ingest:
+ * it corrects each rollup with an {@code $inc} of the difference between its recomputed and
+ * its current totals instead of overwriting it, so live {@code $inc} upserts that land
+ * meanwhile are kept, and readers never see a user without rollups.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StatsRebuildJob {
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${activity.stats.rebuild.on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Value("${activity.stats.rebuild.parallelism:4}")
+    private int parallelism;
+
+    @Value("${activity.stats.rebuild.chunk-size:200}")
+    private int chunkSize;
+
+    // Runs beside request handling rather than holding up the remaining startup listeners
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            Thread.ofPlatform().name("stats-rebuild").daemon().start(this::rebuildAll);
+        }
+    }
+
+    public void rebuildAll() {
+        long started = System.nanoTime();
+        AtomicInteger users = new AtomicInteger();
+        AtomicLong rollups = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        // Keeps at most two chunks per worker queued while the user cursor is read
+        Semaphore queued = new Semaphore(parallelism * 2);
+        Aggregation distinctUsers = Aggregation.newAggregation(Aggregation.group("userId"));
+        try (Stream<Document> userIds = mongoTemplate.aggregateStream(distinctUsers, Activity.class, Document.class)) {
+            List<String> chunk = new ArrayList<>(chunkSize);
+            for (Document user : (Iterable<Document>) userIds::iterator) {
+                if (user.getString("_id") == null) {
+                    continue;
+                }
+                chunk.add(user.getString("_id"));
+                if (chunk.size() == chunkSize) {
+                    submit(workers, queued, chunk, users, rollups);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(workers, queued, chunk, users, rollups);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.shutdown();
+            try {
+                workers.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Rebuilt {} rollups for {} users in {} ms", rollups.get(), users.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Corrects the rollups of one user to the totals of the activities created before the
+     * call, read after a snapshot of the current rollups. Activities created later are left
+     * to their live {@code $inc}, which lands after the snapshot and so survives the
+     * correction. Only an activity created before the call whose live write lands after
+     * the snapshot is counted twice; its window is that of one request. Buckets left
+     * without activities are removed.
+     *
+     * @return the number of rollups the user's activities fall into
+     */
+    public int rebuildUser(String userId) {
+        LocalDateTime started = LocalDateTime.now();
+        Map<String, ActivityRollup> current = new HashMap<>();
+        for (ActivityRollup rollup : mongoTemplate.find(new Query(Criteria.where("userId").is(userId)), ActivityRollup.class)) {
+            current.put(rollup.getId(), rollup);
+        }
+        Query query = new Query(Criteria.where("userId").is(userId)
+                .orOperator(Criteria.where("createdAt").lt(started), Criteria.where("createdAt").is(null)));
+        query.fields().include("userId", "type", "duration", "caloriesBurned", "startTime", "createdAt");
+        Map<String, ActivityRollup> rebuilt = new HashMap<>();
+        try (Stream<Activity> activities = mongoTemplate.stream(query, Activity.class)) {
+            ActivityStatsService.rollUp((Iterable<Activity>) activities::iterator)
+                    .forEach(rollup -> rebuilt.put(rollup.getId(), rollup));
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityRollup.class);
+        LocalDateTime now = LocalDateTime.now();
+        int corrections = 0;
+        for (ActivityRollup rollup : rebuilt.values()) {
+            ActivityRollup was = current.remove(rollup.getId());
+            if (was == null) {
+                was = new ActivityRollup();
+            }
+            corrections += correct(bulk, rollup, rollup.getCount() - was.getCount(),
+                    rollup.getTotalDuration() - was.getTotalDuration(),
+                    rollup.getTotalCalories() - was.getTotalCalories(), now);
+        }
+        for (ActivityRollup stale : current.values()) {
+            corrections += correct(bulk, stale, -stale.getCount(), -stale.getTotalDuration(),
+                    -stale.getTotalCalories(), now);
+        }
+        if (corrections > 0) {
+            bulk.execute();
+        }
+        // A live upsert after the correction leaves its bucket above zero
+        mongoTemplate.remove(new Query(Criteria.where("userId").is(userId).and("count").lte(0)), ActivityRollup.class);
+        return rebuilt.size();
+    }
+
+    /**
+     * Adds the upsert moving {@code bucket} by the given amounts to {@code bulk}, unless all
+     * of them are zero.
+     *
+     * @return the number of upserts added
+     */
+    private static int correct(BulkOperations bulk, ActivityRollup bucket, long count, long duration,
+                               long calories, LocalDateTime now) {
+        if (count == 0 && duration == 0 && calories == 0) {
+            return 0;
+        }
+        bulk.upsert(new Query(Criteria.where("_id").is(bucket.getId())), new Update()
+                .inc("count", count)
+                .inc("totalDuration", duration)
+                .inc("totalCalories", calories)
+                .set("updatedAt", now)
+                .setOnInsert("userId", bucket.getUserId())
+                .setOnInsert("period", bucket.getPeriod())
+                .setOnInsert("bucketStart", bucket.getBucketStart())
+                .setOnInsert("type", bucket.getType()));
+        return 1;
+    }
+
+    private void submit(ExecutorService workers, Semaphore queued, List<String> chunk,
+                        AtomicInteger users, AtomicLong rollups) throws InterruptedException {
+        queued.acquire();
+        workers.execute(() -> {
+            try {
+                for (String userId : chunk) {
+                    try {
+                        rollups.addAndGet(rebuildUser(userId));
+                        users.incrementAndGet();
+                    } catch (DataAccessException e) {
+                        log.error("Could not rebuild rollups for user {}: {}", userId, e.getMessage());
+                    }
+                }
+            } finally {
+                queued.release();
+            }
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import com.arpon007.fitness.ActivityService.dto.UserEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UserEventListener {
+    private final UserValidationCache userValidationCache;
+
+    // Every instance holds its own cache, so each one needs its own consumer group to see all events
+    @KafkaListener(topics = "${kafka.topic.user-events}",
+            groupId = "activity-user-cache-${random.uuid}",
+            containerFactory = "userEventListenerContainerFactory")
+    public void onUserEvent(UserEvent event) {
+        if (event == null || event.getKeycloakId() == null) {
+            return;
+        }
+        log.debug("Invalidating cached validation for user {} after {}", event.getKeycloakId(), event.getType());
+        userValidationCache.invalidate(event.getKeycloakId());
+    }
+}
@@ -0,0 +1,89 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * In-process cache of user validation results. Valid and invalid users are kept in
+ * separate caches: a positive answer is stable and can live long, while a negative one
+ * must expire quickly so a freshly registered user is not rejected for long if the
+ * CREATED event is missed. A third, longer-lived record of users last seen valid lets
+ * validation fail open while USER-SERVICE is unreachable.
+ */
+@Component
+public class UserValidationCache {
+    private final Cache<String, Boolean> validUsers;
+    private final Cache<String, Boolean> invalidUsers;
+    private final Cache<String, Boolean> recentlyValidUsers;
+
+    public UserValidationCache(@Value("${user-validation.cache.max-size:10000}") long maxSize,
+                               @Value("${user-validation.cache.ttl:10m}") Duration ttl,
+                               @Value("${user-validation.cache.negative-max-size:1000}") long negativeMaxSize,
+                               @Value("${user-validation.cache.negative-ttl:30s}") Duration negativeTtl,
+                               @Value("${user-validation.fallback.max-age:1h}") Duration fallbackMaxAge,
+                               MeterRegistry meterRegistry) {
+        this.validUsers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.invalidUsers = Caffeine.newBuilder()
+                .maximumSize(negativeMaxSize)
+                .expireAfterWrite(negativeTtl)
+                .recordStats()
+                .build();
+        this.recentlyValidUsers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(fallbackMaxAge)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, validUsers, "user-validation");
+        CaffeineCacheMetrics.monitor(meterRegistry, invalidUsers, "user-validation-negative");
+    }
+
+    /**
+     * @return the cached answer, or {@code null} when the user has to be looked up
+     */
+    public Boolean get(String userId) {
+        if (validUsers.getIfPresent(userId) != null) {
+            return Boolean.TRUE;
+        }
+        if (invalidUsers.getIfPresent(userId) != null) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    public void put(String userId, boolean valid) {
+        if (valid) {
+            validUsers.put(userId, Boolean.TRUE);
+            recentlyValidUsers.put(userId, Boolean.TRUE);
+            invalidUsers.invalidate(userId);
+        } else {
+            invalidUsers.put(userId, Boolean.FALSE);
+            validUsers.invalidate(userId);
+            recentlyValidUsers.invalidate(userId);
+        }
+    }
+
+    /**
+     * @return whether USER-SERVICE confirmed the user within {@code user-validation.fallback.max-age},
+     *         even if the regular cache entry has since expired
+     */
+    public boolean wasRecentlyValid(String userId) {
+        return recentlyValidUsers.getIfPresent(userId) != null;
+    }
+
+    public void invalidate(String userId) {
+        validUsers.invalidate(userId);
+        invalidUsers.invalidate(userId);
+        recentlyValidUsers.invalidate(userId);
+    }
+}
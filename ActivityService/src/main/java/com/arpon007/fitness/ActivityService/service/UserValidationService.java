@@ -1,31 +1,138 @@
 package com.arpon007.fitness.ActivityService.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.arpon007.fitness.commons.resilience.ResilientCalls;
+import com.arpon007.fitness.commons.user.UserValidationBatcher;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+/**
+ * Validates users against USER-SERVICE. Lookups that miss the cache are batched: ids
+ * requested within {@code user-validation.batch.window} of each other are resolved with
+ * one {@code POST /api/users/validate} call of up to {@code user-validation.batch.max-size} ids.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UserValidationService {
+    private static final String USER_SERVICE = "user-service";
+    private static final ParameterizedTypeReference<Map<String, Boolean>> VALIDATIONS =
+            new ParameterizedTypeReference<>() {
+            };
 
     private final WebClient webClient;
+    private final UserValidationCache userValidationCache;
+    private final ResilientCalls resilientCalls;
+    private final UserValidationBatcher batcher;
+    private final int batchMaxSize;
+
+    @Value("${user-validation.fallback.fail-open:true}")
+    private boolean failOpen;
+
+    @Value("${user-validation.batch-concurrency:8}")
+    private int batchConcurrency;
+
+    public UserValidationService(WebClient webClient,
+                                 UserValidationCache userValidationCache,
+                                 ResilientCalls resilientCalls,
+                                 @Value("${user-validation.batch.window:5ms}") Duration batchWindow,
+                                 @Value("${user-validation.batch.max-size:100}") int batchMaxSize) {
+        this.webClient = webClient;
+        this.userValidationCache = userValidationCache;
+        this.resilientCalls = resilientCalls;
+        this.batchMaxSize = batchMaxSize;
+        this.batcher = new UserValidationBatcher(this::lookup, batchWindow, batchMaxSize);
+    }
 
     public boolean validateUser(String userId) {
-        log.info("Calling user Service for  id {}", userId);
-
-        try {
-            return webClient.get()
-                    .uri("http://user-service/api/users/{userId}/validate", userId)
-                    .retrieve()
-                    .bodyToMono(Boolean.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            log.error("Error validating user {}: {}", userId, e.getMessage());
+        return Boolean.TRUE.equals(validateUserReactive(userId).block());
+    }
+
+    public Mono<Boolean> validateUserReactive(String userId) {
+        Boolean cached = userValidationCache.get(userId);
+        if (cached != null) {
+            return Mono.just(cached);
         }
-        return false;
+        return batcher.validate(userId)
+                .onErrorResume(e -> fallback(userId, e));
+    }
+
+    private Mono<Map<String, Boolean>> lookup(Set<String> userIds) {
+        log.info("Calling user Service for {} ids", userIds.size());
+
+        Mono<Map<String, Boolean>> lookup = webClient.post()
+                .uri("http://user-service/api/users/validate")
+                .bodyValue(userIds)
+                .retrieve()
+                .bodyToMono(VALIDATIONS)
+                // Only definite answers are cached; errors fall through and are retried next time
+                .doOnNext(validations -> userIds.forEach(userId ->
+                        userValidationCache.put(userId, Boolean.TRUE.equals(validations.get(userId)))))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    if (!e.getStatusCode().is4xxClientError()) {
+                        return Mono.error(e);
+                    }
+                    log.error("Error validating users {}: {}", userIds, e.getMessage());
+                    return Mono.just(Map.of());
+                });
+        return resilientCalls.call(USER_SERVICE, lookup);
+    }
+
+    // USER-SERVICE is failing, slow or shed by the breaker: accept users it confirmed recently
+    private Mono<Boolean> fallback(String userId, Throwable e) {
+        if (failOpen && userValidationCache.wasRecentlyValid(userId)) {
+            log.warn("User validation unavailable ({}), accepting recently validated user {}", e.toString(), userId);
+            return Mono.just(true);
+        }
+        log.error("User validation unavailable for user {}: {}", userId, e.toString());
+        return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "User validation unavailable"));
+    }
+
+    /**
+     * Validates each distinct user once. Cache misses go out in bulk calls of up to
+     * {@code user-validation.batch.max-size} ids with up to {@code user-validation.batch-concurrency}
+     * calls in flight; they skip the batcher's window, since the whole set is known up front.
+     * Users missing from the result map should be treated as invalid.
+     */
+    public Map<String, Boolean> validateUsers(Collection<String> userIds) {
+        Map<String, Boolean> validations = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        userIds.stream().filter(Objects::nonNull).distinct().forEach(userId -> {
+            Boolean cached = userValidationCache.get(userId);
+            if (cached != null) {
+                validations.put(userId, cached);
+            } else {
+                misses.add(userId);
+            }
+        });
+        return Flux.fromIterable(misses)
+                .buffer(batchMaxSize)
+                .flatMap(batch -> lookup(new LinkedHashSet<>(batch))
+                        .flatMapIterable(results -> batch.stream()
+                                .map(userId -> Map.entry(userId, Boolean.TRUE.equals(results.get(userId))))
+                                .toList())
+                        .onErrorResume(e -> Flux.fromIterable(batch)
+                                .flatMap(userId -> fallback(userId, e).map(valid -> Map.entry(userId, valid)))),
+                        batchConcurrency)
+                .collect(() -> validations, (map, entry) -> map.put(entry.getKey(), entry.getValue()))
+                .block();
     }
 }
@@ -0,0 +1,165 @@
+package com.arpon007.fitness.ActivityService.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.arpon007.fitness.ActivityService.config.ActivityMetricsConverters;
+import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.ActivityService.model.ActivityMetrics;
+import com.arpon007.fitness.events.avro.ActivityType;
+
+import lombok.Data;
+
+/**
+ * Compares the previous {@code Map<String, Object>} metrics layout with the typed
+ * {@link ActivityMetrics} stored through {@link ActivityMetricsConverters}: encoding an
+ * activity to BSON bytes and decoding it back through the Spring Data converter. The BSON
+ * size of both layouts is printed during setup; run {@link #main} from the ActivityService
+ * test classpath after {@code mvn test-compile} for throughput and bytes allocated per op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActivityDocumentBenchmark {
+    private final DocumentCodec codec = new DocumentCodec();
+
+    private MappingMongoConverter legacyConverter;
+    private MappingMongoConverter typedConverter;
+    private LegacyActivity legacyActivity;
+    private Activity typedActivity;
+    private RawBsonDocument legacyBson;
+    private RawBsonDocument typedBson;
+
+    /** The activity document as it was mapped before typed metrics. */
+    @Data
+    @org.springframework.data.mongodb.core.mapping.Document(collection = "activities")
+    public static class LegacyActivity {
+        private String id;
+        private String userId;
+        private ActivityType type;
+        private Integer duration;
+        private Integer caloriesBurned;
+        private LocalDateTime startTime;
+        @Field("metrics")
+        private Map<String, Object> additionalMetrics;
+        private LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+    }
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("heartRateAvg", 146);
+        metrics.put("heartRateMax", 178);
+        metrics.put("distance", 10.4);
+        metrics.put("pace", 5.35);
+        metrics.put("steps", 11_820);
+        metrics.put("elevationGain", 86.0);
+        metrics.put("weather", "sunny");
+        LocalDateTime start = LocalDateTime.of(2025, 6, 1, 7, 30);
+
+        legacyActivity = new LegacyActivity();
+        legacyActivity.setId("665b1f4e2a9c4e3b8d7f1a20");
+        legacyActivity.setUserId("7d2f6a1e-3c54-4b8e-9f20-1a6c5e8b9d33");
+        legacyActivity.setType(ActivityType.RUNNING);
+        legacyActivity.setDuration(56);
+        legacyActivity.setCaloriesBurned(640);
+        legacyActivity.setStartTime(start);
+        legacyActivity.setAdditionalMetrics(metrics);
+        legacyActivity.setCreatedAt(start.plusHours(1));
+        legacyActivity.setUpdatedAt(start.plusHours(1));
+
+        typedActivity = Activity.builder()
+                .id(legacyActivity.getId())
+                .userId(legacyActivity.getUserId())
+                .type(ActivityType.RUNNING)
+                .duration(56)
+                .caloriesBurned(640)
+                .startTime(start)
+                .metrics(ActivityMetrics.fromMap(metrics))
+                .createdAt(start.plusHours(1))
+                .updatedAt(start.plusHours(1))
+                .build();
+
+        legacyConverter = converter(new MongoCustomConversions(List.of()));
+        typedConverter = converter(new MongoCustomConversions(ActivityMetricsConverters.all()));
+        legacyBson = encodeLegacy();
+        typedBson = encodeTyped();
+        System.out.printf("%nBSON size: legacy map %d bytes, typed compact %d bytes%n",
+                legacyBson.getByteBuffer().remaining(), typedBson.getByteBuffer().remaining());
+    }
+
+    private static MappingMongoConverter converter(MongoCustomConversions conversions) {
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    @Benchmark
+    public RawBsonDocument encodeLegacy() {
+        org.bson.Document document = new org.bson.Document();
+        legacyConverter.write(legacyActivity, document);
+        return new RawBsonDocument(document, codec);
+    }
+
+    @Benchmark
+    public RawBsonDocument encodeTyped() {
+        org.bson.Document document = new org.bson.Document();
+        typedConverter.write(typedActivity, document);
+        return new RawBsonDocument(document, codec);
+    }
+
+    @Benchmark
+    public LegacyActivity decodeLegacy() {
+        return legacyConverter.read(LegacyActivity.class, decode(legacyBson));
+    }
+
+    @Benchmark
+    public Activity decodeTyped() {
+        return typedConverter.read(Activity.class, decode(typedBson));
+    }
+
+    private org.bson.Document decode(BsonDocument bson) {
+        return codec.decode(bson.asBsonReader(), DecoderContext.builder().build());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ActivityDocumentBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
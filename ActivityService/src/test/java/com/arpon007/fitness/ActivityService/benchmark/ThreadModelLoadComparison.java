@@ -0,0 +1,195 @@
+package com.arpon007.fitness.ActivityService.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.arpon007.fitness.ActivityService.service.UserValidationCache;
+import com.arpon007.fitness.ActivityService.service.UserValidationService;
+import com.arpon007.fitness.commons.resilience.ResilientCalls;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Load comparison of ActivityService's request threading with and without
+ * {@code spring.threads.virtual.enabled}. An embedded Tomcat is configured the way Spring
+ * Boot configures it in each mode (its default 200-thread pool, or a virtual thread per
+ * request), and every request blocks on {@link UserValidationService#validateUser} against
+ * a stub USER-SERVICE that answers after a fixed delay, as the tracking endpoint does.
+ * Each request uses a new user id, so the validation cache never short-circuits the call.
+ * Throughput, latency percentiles, peak live threads and heap are printed per mode.
+ *
+ * <p>Run {@link #main} from the ActivityService test classpath after {@code mvn test-compile};
+ * optional arguments are concurrency, request count and stub latency in milliseconds.
+ */
+public class ThreadModelLoadComparison {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        Duration latency = Duration.ofMillis(args.length > 2 ? Long.parseLong(args[2]) : 50);
+        ((Logger) LoggerFactory.getLogger("com.arpon007")).setLevel(Level.WARN);
+        ((Logger) LoggerFactory.getLogger("org.apache")).setLevel(Level.WARN);
+
+        // Non-blocking stub, so that its own threading never limits the comparison
+        DisposableServer userService = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.post("/api/users/validate", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .sendString(request.receive().aggregate().asString()
+                                .map(ThreadModelLoadComparison::allValid)
+                                .delayElement(latency))))
+                .bindNow();
+        try {
+            System.out.printf("concurrency=%d requests=%d user-service latency=%dms%n",
+                    concurrency, requests, latency.toMillis());
+            for (boolean virtual : new boolean[]{false, true}) {
+                // First pass warms up the JIT and connection pools, second is reported
+                run(virtual, concurrency, requests / 4, userService.port(), false);
+                run(virtual, concurrency, requests, userService.port(), true);
+            }
+        } finally {
+            userService.disposeNow();
+        }
+    }
+
+    private static String allValid(String ids) {
+        try {
+            Map<String, Boolean> answers = new HashMap<>();
+            for (String id : MAPPER.readValue(ids, String[].class)) {
+                answers.put(id, Boolean.TRUE);
+            }
+            return MAPPER.writeValueAsString(answers);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void run(boolean virtual, int concurrency, int requests, int userServicePort, boolean report)
+            throws Exception {
+        UserValidationService validation = validationService(userServicePort);
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        if (virtual) {
+            factory.addProtocolHandlerCustomizers(handler -> handler.setExecutor(Executors.newVirtualThreadPerTaskExecutor()));
+        }
+        WebServer server = factory.getWebServer(context -> context.addServlet("track", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                boolean valid = validation.validateUser(request.getParameter("userId"));
+                response.setContentType("application/json");
+                response.getWriter().write(Boolean.toString(valid));
+            }
+        }).addMapping("/track"));
+        server.start();
+        int port = ((TomcatWebServer) server).getPort();
+
+        System.gc();
+        THREADS.resetPeakThreadCount();
+        long[] latencies = new long[requests];
+        AtomicInteger failures = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientThreads)
+                    .build();
+            CompletableFuture<?>[] calls = new CompletableFuture<?>[requests];
+            for (int i = 0; i < requests; i++) {
+                inFlight.acquire();
+                int index = i;
+                long sent = System.nanoTime();
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/track?userId=user-" + i)).build();
+                calls[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) -> {
+                            latencies[index] = System.nanoTime() - sent;
+                            if (error != null || response.statusCode() != 200) {
+                                failures.incrementAndGet();
+                            }
+                            inFlight.release();
+                        });
+            }
+            CompletableFuture.allOf(calls).join();
+        }
+        long elapsed = System.nanoTime() - start;
+        long heapUsed = MEMORY.getHeapMemoryUsage().getUsed();
+        server.stop();
+        server.destroy();
+
+        if (report) {
+            Arrays.sort(latencies);
+            System.out.printf("%-8s throughput=%8.0f req/s  p50=%6.1fms  p99=%7.1fms  max=%7.1fms  peakThreads=%4d  heapUsed=%4dMB  failures=%d%n",
+                    virtual ? "virtual" : "platform",
+                    requests / (elapsed / 1e9),
+                    latencies[requests / 2] / 1e6,
+                    latencies[(int) (requests * 0.99)] / 1e6,
+                    latencies[requests - 1] / 1e6,
+                    THREADS.getPeakThreadCount(),
+                    heapUsed / (1024 * 1024),
+                    failures.get());
+        }
+    }
+
+    private static UserValidationService validationService(int port) {
+        // Enough pooled connections that USER-SERVICE, not the client pool, is never the limit
+        ConnectionProvider connections = ConnectionProvider.builder("load-test")
+                .maxConnections(4096)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(reactor.netty.http.client.HttpClient.create(connections)))
+                .filter((request, next) -> next.exchange(ClientRequest.from(request)
+                        .url(UriComponentsBuilder.fromUri(request.url()).host("localhost").port(port).build().toUri())
+                        .build()))
+                .build();
+        ResilientCalls resilientCalls = new ResilientCalls(CircuitBreakerRegistry.ofDefaults(),
+                BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(100_000).build()),
+                TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(30)).build()));
+        UserValidationCache cache = new UserValidationCache(1000, Duration.ofMinutes(10), 1000, Duration.ofSeconds(30),
+                Duration.ofHours(1), new SimpleMeterRegistry());
+        return new UserValidationService(webClient, cache, resilientCalls, Duration.ofMillis(5), 100);
+    }
+}
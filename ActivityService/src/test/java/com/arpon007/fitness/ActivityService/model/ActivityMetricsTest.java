@@ -0,0 +1,46 @@
+package com.arpon007.fitness.ActivityService.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import com.arpon007.fitness.ActivityService.config.ActivityMetricsConverters;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ActivityMetricsTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void typesWellKnownMetricsAndKeepsTheRestAsSent() throws Exception {
+        ActivityMetrics metrics = mapper.readValue("""
+                {"distance": 9, "pace": "8:39", "steps": 11800, "heartRateAvg": 142.5,
+                 "heartRateMax": 171, "elevationGain": 85.5, "weather": {"temp": 18}}
+                """, ActivityMetrics.class);
+
+        assertThat(metrics.getDistance()).isEqualTo(9.0);
+        assertThat(metrics.getSteps()).isEqualTo(11800);
+        assertThat(metrics.getHeartRateMax()).isEqualTo(171);
+        assertThat(metrics.getElevationGain()).isEqualTo(85.5);
+        assertThat(metrics.getPace()).isNull();
+        assertThat(metrics.getHeartRateAvg()).isNull();
+        assertThat(metrics.getOther()).containsOnlyKeys("pace", "heartRateAvg", "weather");
+
+        assertThat(mapper.readValue(mapper.writeValueAsString(metrics), Map.class)).isEqualTo(Map.of(
+                "distance", 9.0, "pace", "8:39", "steps", 11800, "heartRateAvg", 142.5,
+                "heartRateMax", 171, "elevationGain", 85.5, "weather", Map.of("temp", 18)));
+    }
+
+    @Test
+    void roundTripsThroughTheCompactDocument() {
+        ActivityMetrics metrics = ActivityMetrics.fromMap(Map.of("distance", 5.2, "heartRateAvg", 150, "cadence", 172));
+
+        Document document = ActivityMetricsConverters.Writer.INSTANCE.convert(metrics);
+
+        assertThat(document).isEqualTo(new Document("ha", 150).append("d", 5.2)
+                .append("x", Map.of("cadence", 172)));
+        assertThat(ActivityMetricsConverters.Reader.INSTANCE.convert(document)).isEqualTo(metrics);
+    }
+}
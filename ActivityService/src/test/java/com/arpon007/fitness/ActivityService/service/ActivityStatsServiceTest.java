@@ -0,0 +1,56 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.ActivityService.model.ActivityRollup;
+import com.arpon007.fitness.ActivityService.model.RollupPeriod;
+import com.arpon007.fitness.events.avro.ActivityType;
+
+class ActivityStatsServiceTest {
+
+    @Test
+    void sumsActivitiesIntoDayWeekAndMonthBuckets() {
+        // Sunday 2 March and Monday 3 March 2025 fall in different ISO weeks, same month
+        List<Activity> activities = List.of(
+                run(LocalDateTime.of(2025, 3, 2, 7, 0), 30, 300),
+                run(LocalDateTime.of(2025, 3, 3, 7, 0), 45, 450),
+                run(LocalDateTime.of(2025, 3, 3, 18, 0), 15, 150));
+
+        Map<String, ActivityRollup> rollups = ActivityStatsService.rollUp(activities).stream()
+                .collect(Collectors.toMap(ActivityRollup::getId, Function.identity()));
+
+        assertEquals(2 + 2 + 1, rollups.size());
+        ActivityRollup monday = rollups.get(id(RollupPeriod.DAY, LocalDate.of(2025, 3, 3)));
+        assertEquals(2, monday.getCount());
+        assertEquals(60, monday.getTotalDuration());
+        assertEquals(1, rollups.get(id(RollupPeriod.WEEK, LocalDate.of(2025, 2, 24))).getCount());
+        assertEquals(2, rollups.get(id(RollupPeriod.WEEK, LocalDate.of(2025, 3, 3))).getCount());
+        ActivityRollup march = rollups.get(id(RollupPeriod.MONTH, LocalDate.of(2025, 3, 1)));
+        assertEquals(3, march.getCount());
+        assertEquals(900, march.getTotalCalories());
+    }
+
+    private static Activity run(LocalDateTime startTime, int duration, int calories) {
+        return Activity.builder()
+                .userId("user")
+                .type(ActivityType.RUNNING)
+                .startTime(startTime)
+                .duration(duration)
+                .caloriesBurned(calories)
+                .build();
+    }
+
+    private static String id(RollupPeriod period, LocalDate bucketStart) {
+        return ActivityRollup.idOf("user", period, bucketStart, ActivityType.RUNNING);
+    }
+}
@@ -0,0 +1,33 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+
+class ExportTasksTest {
+    private final ExportTasks exportTasks = new ExportTasks(1, Duration.ofMinutes(5));
+
+    @AfterEach
+    void tearDown() {
+        exportTasks.shutdown();
+    }
+
+    @Test
+    void answers503WhileEveryExportSlotIsTaken() throws Exception {
+        WebAsyncTask<Void> running = exportTasks.start(() -> null);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> exportTasks.start(() -> null));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertEquals(Duration.ofMinutes(5).toMillis(), running.getTimeout());
+
+        running.getCallable().call();
+        exportTasks.start(() -> null);
+    }
+}
@@ -0,0 +1,125 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.ActivityService.model.OutboxEvent;
+import com.arpon007.fitness.events.avro.ActivityEvent;
+import com.arpon007.fitness.events.avro.ActivityType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OutboxRelayTest {
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, ActivityEvent> kafkaTemplate = mock(KafkaTemplate.class);
+    private final Map<String, CompletableFuture<SendResult<String, ActivityEvent>>> acks = new HashMap<>();
+    private final List<String> sent = new ArrayList<>();
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(mongoTemplate, kafkaTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(relay, "topicName", "activity-events");
+        ReflectionTestUtils.setField(relay, "backfillTopicName", "activity-events-backfill");
+        ReflectionTestUtils.setField(relay, "liveWindow", Duration.ofHours(6));
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        ReflectionTestUtils.setField(relay, "maxAttempts", 10);
+        ReflectionTestUtils.setField(relay, "retryBackoff", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "maxRetryBackoff", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(relay, "sendTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(relay, "lease", Duration.ofSeconds(30));
+        when(kafkaTemplate.send(anyString(), anyString(), any(ActivityEvent.class))).thenAnswer(invocation -> {
+            String id = invocation.<ActivityEvent>getArgument(2).getId();
+            sent.add(id);
+            return acks.get(id);
+        });
+    }
+
+    @Test
+    void aFailedEventHoldsBackLaterEventsOfItsUserOnly() {
+        pending(activity("a1", "u1"), activity("a2", "u1"), activity("b1", "u2"));
+        acks.put("a1", CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+        acks.put("a2", CompletableFuture.completedFuture(null));
+        acks.put("b1", CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        // a2 must not overtake a1 on the topic, so it is not sent until a1 goes through
+        assertEquals(List.of("a1", "b1"), sent);
+        ArgumentCaptor<Query> delivered = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateMulti(delivered.capture(), any(Update.class), eq(Activity.class));
+        assertTrue(delivered.getValue().toString().contains("b1"));
+        ArgumentCaptor<Update> retry = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), retry.capture(), eq(Activity.class));
+        assertEquals(1, retry.getValue().getUpdateObject().get("$set", Document.class).get("outbox.attempts"));
+    }
+
+    @Test
+    void sendsTheNextEventOfAUserOnlyOnceThePreviousOneIsAcknowledged() {
+        pending(activity("a1", "u1"), activity("b1", "u2"), activity("a2", "u1"), activity("a3", "u1"));
+        acks.put("a1", new CompletableFuture<SendResult<String, ActivityEvent>>()
+                .completeOnTimeout(null, 50, TimeUnit.MILLISECONDS));
+        acks.put("b1", CompletableFuture.completedFuture(null));
+        acks.put("a2", new CompletableFuture<SendResult<String, ActivityEvent>>()
+                .completeOnTimeout(null, 50, TimeUnit.MILLISECONDS));
+        acks.put("a3", CompletableFuture.completedFuture(null));
+        List<Boolean> previousAcked = new ArrayList<>();
+        when(kafkaTemplate.send(anyString(), eq("u1"), any(ActivityEvent.class))).thenAnswer(invocation -> {
+            String id = invocation.<ActivityEvent>getArgument(2).getId();
+            if (!id.equals("a1")) {
+                previousAcked.add(acks.get("a" + (Integer.parseInt(id.substring(1)) - 1)).isDone());
+            }
+            sent.add(id);
+            return acks.get(id);
+        });
+
+        relay.relay();
+
+        assertEquals(List.of("a1", "b1", "a2", "a3"), sent);
+        assertEquals(List.of(true, true), previousAcked);
+    }
+
+    private void pending(Activity... activities) {
+        when(mongoTemplate.find(any(Query.class), eq(Activity.class))).thenReturn(List.of(activities));
+    }
+
+    private static Activity activity(String id, String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        return Activity.builder()
+                .id(id)
+                .userId(userId)
+                .type(ActivityType.RUNNING)
+                .startTime(now)
+                .createdAt(now)
+                .outbox(OutboxEvent.pending())
+                .build();
+    }
+}
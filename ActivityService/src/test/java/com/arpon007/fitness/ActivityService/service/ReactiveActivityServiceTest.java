@@ -0,0 +1,43 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.arpon007.fitness.ActivityService.dto.ActivityRequest;
+import com.arpon007.fitness.ActivityService.model.Activity;
+
+import reactor.core.publisher.Mono;
+
+class ReactiveActivityServiceTest {
+    private final ReactiveMongoTemplate reactiveMongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final UserValidationService userValidationService = mock(UserValidationService.class);
+    private final ReactiveActivityService service = new ReactiveActivityService(reactiveMongoTemplate,
+            userValidationService, mock(ActivityStatsService.class));
+
+    @Test
+    void aValidationWithoutAnswerIsABadRequestLikeOnTheBlockingPath() {
+        ReflectionTestUtils.setField(service, "maxInFlight", 1);
+        when(userValidationService.validateUserReactive("u1")).thenReturn(Mono.empty());
+        ActivityRequest request = new ActivityRequest();
+        request.setUserId("u1");
+
+        for (int i = 0; i < 2; i++) {
+            // The second attempt would be a 503 if the first had kept its in-flight slot
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> service.tractActivity(request).block());
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        }
+        verify(reactiveMongoTemplate, never()).insert(any(Activity.class));
+    }
+}
@@ -0,0 +1,133 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.arpon007.fitness.ActivityService.model.Activity;
+import com.arpon007.fitness.ActivityService.model.ActivityRollup;
+import com.arpon007.fitness.ActivityService.model.RollupPeriod;
+import com.arpon007.fitness.events.avro.ActivityType;
+
+class StatsRebuildJobTest {
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+
+    // activity_rollups, with $inc upserts applied the way Mongo applies them
+    private final Map<String, ActivityRollup> rollups = new HashMap<>();
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ActivityStatsService statsService = new ActivityStatsService(mongoTemplate,
+            mock(ReactiveMongoTemplate.class));
+    private final StatsRebuildJob job = new StatsRebuildJob(mongoTemplate);
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityRollup.class))
+                .thenAnswer(invocation -> bulk());
+        when(mongoTemplate.remove(any(Query.class), eq(ActivityRollup.class))).thenAnswer(invocation -> {
+            Document filter = invocation.getArgument(0, Query.class).getQueryObject();
+            assertEquals(new Document("$lte", 0), filter.get("count"));
+            rollups.values().removeIf(rollup -> rollup.getCount() <= 0);
+            return null;
+        });
+    }
+
+    @Test
+    void keepsALiveRecordThatLandsBetweenTheReadAndTheWrite() {
+        Activity counted = run(LocalDateTime.of(2025, 3, 3, 7, 0), 30);
+        Activity lost = run(LocalDateTime.of(2025, 3, 3, 12, 0), 45);
+        Activity live = run(LocalDateTime.of(2025, 3, 3, 18, 0), 15);
+        statsService.record(counted);
+        // A bucket no activity falls into any more
+        statsService.record(run(LocalDateTime.of(2025, 1, 10, 7, 0), 20));
+        when(mongoTemplate.find(any(Query.class), eq(ActivityRollup.class))).thenAnswer(invocation ->
+                rollups.values().stream().map(StatsRebuildJobTest::copy).toList());
+        when(mongoTemplate.stream(any(Query.class), eq(Activity.class))).thenAnswer(invocation -> {
+            Document filter = invocation.getArgument(0, Query.class).getQueryObject();
+            assertTrue(filter.getList("$or", Document.class).get(0).get("createdAt", Document.class).containsKey("$lt"));
+            // Tracked while the user's activities are read; created too late for this read
+            statsService.record(live);
+            return Stream.of(counted, lost);
+        });
+
+        assertEquals(3, job.rebuildUser("user"));
+
+        ActivityRollup monday = rollups.get(id(RollupPeriod.DAY, MONDAY));
+        assertEquals(3, monday.getCount());
+        assertEquals(30 + 45 + 15, monday.getTotalDuration());
+        assertEquals(3, rollups.get(id(RollupPeriod.WEEK, MONDAY)).getCount());
+        assertFalse(rollups.containsKey(id(RollupPeriod.DAY, LocalDate.of(2025, 1, 10))));
+        assertFalse(rollups.containsKey(id(RollupPeriod.MONTH, LocalDate.of(2025, 1, 1))));
+        assertEquals(3, rollups.size());
+    }
+
+    private BulkOperations bulk() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        List<Runnable> upserts = new ArrayList<>();
+        when(bulk.upsert(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            String id = invocation.getArgument(0, Query.class).getQueryObject().getString("_id");
+            Document update = invocation.getArgument(1, Update.class).getUpdateObject();
+            upserts.add(() -> apply(id, update));
+            return bulk;
+        });
+        when(bulk.execute()).thenAnswer(invocation -> {
+            upserts.forEach(Runnable::run);
+            return null;
+        });
+        return bulk;
+    }
+
+    private void apply(String id, Document update) {
+        Document inc = update.get("$inc", Document.class);
+        Document onInsert = update.get("$setOnInsert", Document.class);
+        ActivityRollup rollup = rollups.computeIfAbsent(id, key -> ActivityRollup.builder()
+                .id(key)
+                .userId(onInsert.getString("userId"))
+                .period((RollupPeriod) onInsert.get("period"))
+                .bucketStart((LocalDate) onInsert.get("bucketStart"))
+                .type((ActivityType) onInsert.get("type"))
+                .build());
+        rollup.setCount(rollup.getCount() + ((Number) inc.get("count")).longValue());
+        rollup.setTotalDuration(rollup.getTotalDuration() + ((Number) inc.get("totalDuration")).longValue());
+        rollup.setTotalCalories(rollup.getTotalCalories() + ((Number) inc.get("totalCalories")).longValue());
+    }
+
+    private static ActivityRollup copy(ActivityRollup rollup) {
+        return new ActivityRollup(rollup.getId(), rollup.getUserId(), rollup.getPeriod(), rollup.getBucketStart(),
+                rollup.getType(), rollup.getCount(), rollup.getTotalDuration(), rollup.getTotalCalories(),
+                rollup.getUpdatedAt());
+    }
+
+    private static Activity run(LocalDateTime startTime, int duration) {
+        return Activity.builder()
+                .userId("user")
+                .type(ActivityType.RUNNING)
+                .startTime(startTime)
+                .duration(duration)
+                .build();
+    }
+
+    private static String id(RollupPeriod period, LocalDate bucketStart) {
+        return ActivityRollup.idOf("user", period, bucketStart, ActivityType.RUNNING);
+    }
+}
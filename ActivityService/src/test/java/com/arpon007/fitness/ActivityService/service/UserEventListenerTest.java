@@ -0,0 +1,134 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.arpon007.fitness.ActivityService.config.KafkaConfig;
+import com.arpon007.fitness.ActivityService.dto.UserEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Runs the user event listener in a container from {@link KafkaConfig} with virtual threads
+ * enabled, against an embedded broker.
+ */
+class UserEventListenerTest {
+    private static final String TOPIC = "user-events";
+    private static final int EVENTS = 50;
+
+    private EmbeddedKafkaKraftBroker broker;
+    private UserValidationCache cache;
+    private ConcurrentMessageListenerContainer<String, UserEvent> container;
+
+    @BeforeEach
+    void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, 1, TOPIC);
+        broker.afterPropertiesSet();
+        cache = new UserValidationCache(100, Duration.ofHours(1), 100, Duration.ofHours(1),
+                Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (container != null) {
+            container.stop();
+        }
+        broker.destroy();
+    }
+
+    @Test
+    void invalidationsOnVirtualThreadListenersDoNotPinCarriersInServiceCode() throws Exception {
+        KafkaConfig config = new KafkaConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(config, "virtualThreads", true);
+        UserEventListener listener = new UserEventListener(cache);
+        CountDownLatch received = new CountDownLatch(EVENTS);
+        AtomicBoolean platformThread = new AtomicBoolean();
+
+        container = config.userEventListenerContainerFactory().createContainer(TOPIC);
+        container.getContainerProperties().setGroupId("user-event-listener-test");
+        container.getContainerProperties().setMessageListener((MessageListener<String, UserEvent>) record -> {
+            if (!Thread.currentThread().isVirtual()) {
+                platformThread.set(true);
+            }
+            listener.onUserEvent(record.value());
+            received.countDown();
+        });
+        for (int i = 0; i < EVENTS; i++) {
+            cache.put("user-" + i, true);
+        }
+
+        Path dump = Files.createTempFile("pinning", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            container.start();
+            // The consumer starts at the latest offset, so only send once it owns the partition
+            ContainerTestUtils.waitForAssignment(container, 1);
+            try (KafkaProducer<String, UserEvent> producer = new KafkaProducer<>(
+                    Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()),
+                    new StringSerializer(), new JsonSerializer<>())) {
+                for (int i = 0; i < EVENTS; i++) {
+                    UserEvent event = new UserEvent();
+                    event.setKeycloakId("user-" + i);
+                    event.setType(UserEvent.Type.DELETED);
+                    producer.send(new ProducerRecord<>(TOPIC, event.getKeycloakId(), event));
+                }
+            }
+            assertTrue(received.await(30, TimeUnit.SECONDS), "events not received");
+            container.stop();
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> pinned = RecordingFile.readAllEvents(dump);
+        Files.delete(dump);
+        for (int i = 0; i < EVENTS; i++) {
+            assertNull(cache.get("user-" + i));
+        }
+        assertFalse(platformThread.get(), "listener ran on a platform thread");
+        // Before JDK 24 the Kafka client itself pins while it waits on the group coordinator
+        // (VirtualThreads warns about it); any pinning that passes through service code fails
+        List<RecordedEvent> ours = Runtime.version().feature() < 24
+                ? pinned.stream().filter(UserEventListenerTest::passesThroughServiceCode).toList()
+                : pinned;
+        assertTrue(ours.isEmpty(), () -> "Virtual threads pinned:\n" + ours.stream()
+                .map(event -> String.valueOf(event.getStackTrace()))
+                .collect(Collectors.joining("\n")));
+    }
+
+    private static boolean passesThroughServiceCode(RecordedEvent event) {
+        return event.getStackTrace() != null && event.getStackTrace().getFrames().stream()
+                .map(RecordedFrame::getMethod)
+                .anyMatch(method -> method.getType().getName().startsWith("com.arpon007.fitness."));
+    }
+}
@@ -0,0 +1,220 @@
+package com.arpon007.fitness.ActivityService.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.arpon007.fitness.commons.resilience.ResilienceConfig;
+import com.arpon007.fitness.commons.resilience.ResilientCalls;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class UserValidationServiceTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private HttpServer server;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private UserValidationService userValidationService;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        int port = server.getAddress().getPort();
+        // Send the load-balanced http://user-service URLs to the stub instead
+        WebClient webClient = WebClient.builder()
+                .filter((request, next) -> next.exchange(ClientRequest.from(request)
+                        .url(UriComponentsBuilder.fromUri(request.url()).host("localhost").port(port).build().toUri())
+                        .build()))
+                .build();
+
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .recordException(new ResilienceConfig.DownstreamFailure())
+                .build());
+        ResilientCalls resilientCalls = new ResilientCalls(circuitBreakerRegistry, BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(500).build()),
+                TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(5)).build()));
+        // Regular entries expire at once so every lookup reaches the stub
+        UserValidationCache cache = new UserValidationCache(100, Duration.ofNanos(1), 100, Duration.ofNanos(1),
+                Duration.ofHours(1), new SimpleMeterRegistry());
+        userValidationService = new UserValidationService(webClient, cache, resilientCalls, Duration.ofMillis(5), 100);
+        ReflectionTestUtils.setField(userValidationService, "failOpen", true);
+        ReflectionTestUtils.setField(userValidationService, "batchConcurrency", 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void failsOpenOnlyForUsersValidatedRecently() {
+        server.createContext("/api/users", exchange -> {
+            int call = calls.incrementAndGet();
+            respond(exchange, call == 1 ? 200 : 503, answer(exchange, id -> true));
+        });
+
+        assertTrue(userValidationService.validateUser("known"));
+        assertTrue(userValidationService.validateUser("known"));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> userValidationService.validateUser("unknown"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void opensCircuitAfterRepeatedFailuresAndStopsCallingUserService() {
+        server.createContext("/api/users", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, 500, "{}");
+        });
+
+        for (int i = 0; i < 6; i++) {
+            assertThrows(ResponseStatusException.class, () -> userValidationService.validateUser("user"));
+        }
+
+        assertEquals(4, calls.get());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreakerRegistry.circuitBreaker("user-service").getState());
+    }
+
+    @Test
+    void clientErrorsAreAnswersNotFailures() {
+        server.createContext("/api/users", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, 404, "{}");
+        });
+
+        for (int i = 0; i < 6; i++) {
+            assertFalse(userValidationService.validateUser("missing"));
+        }
+
+        assertEquals(6, calls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.circuitBreaker("user-service").getState());
+    }
+
+    @Test
+    void validationOnVirtualThreadsDoesNotPinCarriers() throws Exception {
+        server.createContext("/api/users", exchange -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, answer(exchange, id -> true));
+        });
+
+        List<Future<Boolean>> results = new ArrayList<>();
+        Path dump = Files.createTempFile("pinning", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            // What a request thread does in virtual-thread mode: block on the reactive lookup
+            try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 200; i++) {
+                    String userId = "user-" + i;
+                    results.add(requests.submit(() -> userValidationService.validateUser(userId)));
+                }
+            }
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> pinned = RecordingFile.readAllEvents(dump);
+        Files.delete(dump);
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        // Lookups issued together share bulk calls
+        assertTrue(calls.get() < 200, () -> calls.get() + " calls for 200 users");
+        assertTrue(pinned.isEmpty(), () -> "Virtual threads pinned:\n" + pinned.stream()
+                .map(event -> String.valueOf(event.getStackTrace()))
+                .collect(Collectors.joining("\n")));
+    }
+
+    @Test
+    void resolvesManyUsersWithFewBulkCalls() {
+        List<String> ids = new ArrayList<>();
+        server.createContext("/api/users/validate", exchange -> {
+            calls.incrementAndGet();
+            assertEquals("POST", exchange.getRequestMethod());
+            respond(exchange, 200, answer(exchange, id -> id.startsWith("known-")));
+        });
+        for (int i = 0; i < 250; i++) {
+            ids.add((i % 2 == 0 ? "known-" : "unknown-") + i);
+        }
+
+        Map<String, Boolean> validations = userValidationService.validateUsers(ids);
+
+        assertEquals(250, validations.size());
+        validations.forEach((id, valid) -> assertEquals(id.startsWith("known-"), valid, id));
+        assertEquals(3, calls.get());
+    }
+
+    // Answers a bulk validation request for every id it names
+    private static String answer(HttpExchange exchange, Predicate<String> valid) throws IOException {
+        List<String> ids = MAPPER.readValue(exchange.getRequestBody(), new TypeReference<List<String>>() {
+        });
+        Map<String, Boolean> answers = new HashMap<>();
+        ids.forEach(id -> answers.put(id, valid.test(id)));
+        return MAPPER.writeValueAsString(answers);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -1,16 +1,95 @@
 package com.arpon007.MicroService.Fitness.UserService.Repo;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import com.arpon007.MicroService.Fitness.UserService.dto.UserResponse;
 import com.arpon007.MicroService.Fitness.UserService.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface UserRepo extends JpaRepository<User, String> {
-    Boolean existsByEmail(String email);
+    String INSERT_USER = """
+            insert into users (id, keyloak_id, email, password, first_name, last_name, role, created_at, updated_at)
+            values (gen_random_uuid()::text, :keyloakId, :email, :password, :firstName, :lastName, 'USER',
+                    localtimestamp, localtimestamp)
+            """;
+    // xmax is only 0 on a row version this statement inserted
+    String RETURN_REGISTRATION = """
+            returning id, keyloak_id as "keyloakId", email, password, first_name as "firstName",
+                      last_name as "lastName", created_at as "createdAt", updated_at as "updatedAt",
+                      (xmax = 0) as "created"
+            """;
+
+    /** A row returned by the registration upserts. */
+    interface Registration {
+        String getId();
+
+        String getKeyloakId();
+
+        String getEmail();
+
+        String getPassword();
+
+        String getFirstName();
+
+        String getLastName();
+
+        LocalDateTime getCreatedAt();
+
+        LocalDateTime getUpdatedAt();
+
+        /** Whether this call inserted the row rather than finding it. */
+        Boolean getCreated();
+    }
+
+    // Only touches uk_users_keyloak_id: an index-only scan once the visibility map is current
+    @Query(value = "select exists(select 1 from users where keyloak_id = :keycloakId)", nativeQuery = true)
+    boolean existsByKeyloakId(@Param("keycloakId") String keycloakId);
+
+    Optional<User> findByKeyloakId(String keycloakId);
+
+    List<User> findByKeyloakIdInOrEmailIn(Collection<String> keycloakIds, Collection<String> emails);
+
+    // Also answered from uk_users_keyloak_id alone; callers keep the list short enough for one statement
+    @Query("select u.keyloakId from User u where u.keyloakId in :keycloakIds")
+    List<String> findExistingKeyloakIds(@Param("keycloakIds") Collection<String> keycloakIds);
+
+    // Profile reads build the response straight from the row, without a managed entity
+    @Query("select new com.arpon007.MicroService.Fitness.UserService.dto.UserResponse("
+            + "u.id, u.keyloakId, u.email, u.password, u.firstName, u.lastName, u.createdAt, u.updatedAt) "
+            + "from User u where u.id = :id")
+    Optional<UserResponse> findProfileById(@Param("id") String id);
+
+    @Query("select new com.arpon007.MicroService.Fitness.UserService.dto.UserResponse("
+            + "u.id, u.keyloakId, u.email, u.password, u.firstName, u.lastName, u.createdAt, u.updatedAt) "
+            + "from User u where u.keyloakId = :keycloakId")
+    Optional<UserResponse> findProfileByKeyloakId(@Param("keycloakId") String keycloakId);
+
+    /*
+     * Registration upserts. The no-op DO UPDATE locks the conflicting row and returns it even
+     * when it was committed by a concurrent registration after this statement started, so
+     * every caller gets the row in one round-trip. A conflict on the other unique column
+     * (the email of a different user) fails with a DataIntegrityViolationException.
+     */
 
-    User findByEmail(String email);
+    @Transactional
+    @Query(value = INSERT_USER + "on conflict (keyloak_id) do update set keyloak_id = excluded.keyloak_id "
+            + RETURN_REGISTRATION, nativeQuery = true)
+    Registration upsertByKeyloakId(@Param("keyloakId") String keyloakId, @Param("email") String email,
+                                   @Param("password") String password, @Param("firstName") String firstName,
+                                   @Param("lastName") String lastName);
 
-    Boolean existsByKeyloakId(String userId);
-    
-    java.util.Optional<User> findByKeyloakId(String keycloakId);
+    @Transactional
+    @Query(value = INSERT_USER + "on conflict (email) do update set email = excluded.email "
+            + RETURN_REGISTRATION, nativeQuery = true)
+    Registration upsertByEmail(@Param("keyloakId") String keyloakId, @Param("email") String email,
+                               @Param("password") String password, @Param("firstName") String firstName,
+                               @Param("lastName") String lastName);
 }
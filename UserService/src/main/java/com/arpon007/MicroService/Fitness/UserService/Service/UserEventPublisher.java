@@ -0,0 +1,33 @@
+package com.arpon007.MicroService.Fitness.UserService.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import com.arpon007.MicroService.Fitness.UserService.dto.UserEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserEventPublisher {
+    private final KafkaTemplate<String, UserEvent> kafkaTemplate;
+
+    @Value("${kafka.topic.user-events}")
+    private String topicName;
+
+    public void publish(String keycloakId, UserEvent.Type type) {
+        if (keycloakId == null) {
+            return;
+        }
+        // Keyed by keycloakId so every event for one user lands on the same partition
+        kafkaTemplate.send(topicName, keycloakId, new UserEvent(keycloakId, type))
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to publish {} event for user {}: {}", type, keycloakId, ex.getMessage());
+                    }
+                });
+    }
+}
@@ -0,0 +1,90 @@
+package com.arpon007.MicroService.Fitness.UserService.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.arpon007.MicroService.Fitness.UserService.dto.UserResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read-through caches for profile and validate lookups. Concurrent misses for one key
+ * share a single database query. Users are never updated in place, so found users can be
+ * kept for {@code user-lookup.cache.ttl}; "not found" answers for validation expire after
+ * {@code user-lookup.cache.negative-ttl}, because registering only evicts this instance's
+ * entries.
+ */
+@Component
+public class UserLookupCache {
+    private final Cache<String, UserResponse> profilesById;
+    private final Cache<String, UserResponse> profilesByKeycloakId;
+    private final Cache<String, Boolean> validations;
+
+    public UserLookupCache(@Value("${user-lookup.cache.max-size:100000}") long maxSize,
+                           @Value("${user-lookup.cache.ttl:10m}") Duration ttl,
+                           @Value("${user-lookup.cache.negative-ttl:30s}") Duration negativeTtl,
+                           MeterRegistry meterRegistry) {
+        this.profilesById = profileCache(maxSize, ttl);
+        this.profilesByKeycloakId = profileCache(maxSize, ttl);
+        this.validations = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, Boolean>writing((keycloakId, exists) -> exists ? ttl : negativeTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, profilesById, "user-profile");
+        CaffeineCacheMetrics.monitor(meterRegistry, profilesByKeycloakId, "user-profile-keycloak");
+        CaffeineCacheMetrics.monitor(meterRegistry, validations, "user-validation");
+    }
+
+    private static Cache<String, UserResponse> profileCache(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the profile, or {@code null} when the loader finds none; misses are not cached
+     */
+    public UserResponse profileById(String userId, Function<String, UserResponse> loader) {
+        return profilesById.get(userId, loader);
+    }
+
+    public UserResponse profileByKeycloakId(String keycloakId, Function<String, UserResponse> loader) {
+        return profilesByKeycloakId.get(keycloakId, loader);
+    }
+
+    public boolean exists(String keycloakId, Predicate<String> loader) {
+        return validations.get(keycloakId, loader::test);
+    }
+
+    /**
+     * Bulk read-through: {@code loader} is called once with every id not cached yet and must
+     * answer for each of them.
+     */
+    public Map<String, Boolean> exists(Set<String> keycloakIds,
+                                       Function<Set<? extends String>, Map<String, Boolean>> loader) {
+        return validations.getAll(keycloakIds, loader);
+    }
+
+    public void evict(String userId, String keycloakId) {
+        if (userId != null) {
+            profilesById.invalidate(userId);
+        }
+        if (keycloakId != null) {
+            profilesByKeycloakId.invalidate(keycloakId);
+            validations.invalidate(keycloakId);
+        }
+    }
+}
@@ -1,98 +1,189 @@
 package com.arpon007.MicroService.Fitness.UserService.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.arpon007.MicroService.Fitness.UserService.Repo.UserRepo;
 import com.arpon007.MicroService.Fitness.UserService.dto.RegisterRequest;
+import com.arpon007.MicroService.Fitness.UserService.dto.UserEvent;
 import com.arpon007.MicroService.Fitness.UserService.dto.UserResponse;
 import com.arpon007.MicroService.Fitness.UserService.models.User;
-import com.arpon007.MicroService.Fitness.UserService.models.UserRole;
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Slf4j
 public class UserService {
     private final UserRepo userRepo;
+    private final UserEventPublisher userEventPublisher;
+    private final UserLookupCache userLookupCache;
 
+    @Value("${user-lookup.validate.max-ids:10000}")
+    private int maxValidateIds;
+
+    @Value("${user-lookup.validate.chunk-size:1000}")
+    private int validateChunkSize;
+
+    @Value("${user-registration.batch.max-size:500}")
+    private int maxRegisterBatch;
+
+    /**
+     * Registers the user, or returns the existing row when one with the same Keycloak id (or,
+     * without one, the same email) is already there. Safe to call concurrently for one user:
+     * exactly one call creates the row and publishes the CREATED event.
+     */
     public UserResponse register(RegisterRequest request) {
-        if (userRepo.existsByEmail((request.getEmail()))) {
-            User existingUser = userRepo.findByEmail(request.getEmail());
-            UserResponse userResponse = new UserResponse();
-            userResponse.setId(existingUser.getId());
-            userResponse.setKeyloakId(existingUser.getKeyloakId());
-            userResponse.setPassword(existingUser.getPassword());
-            userResponse.setEmail(existingUser.getEmail());
-            userResponse.setFirstName(existingUser.getFirstName());
-            userResponse.setLastName(existingUser.getLastName());
-            userResponse.setCreatedAt(existingUser.getCreatedAt());
-            userResponse.setUpdatedAt(existingUser.getUpdatedAt());
+        UserRepo.Registration registration;
+        try {
+            // Password is stored as sent (consider encoding in real apps)
+            registration = request.getKeyloakId() != null
+                    ? userRepo.upsertByKeyloakId(request.getKeyloakId(), request.getEmail(), request.getPassword(),
+                            request.getFirstName(), request.getLastName())
+                    : userRepo.upsertByEmail(null, request.getEmail(), request.getPassword(),
+                            request.getFirstName(), request.getLastName());
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Email is already registered to another user");
+        }
+        if (Boolean.TRUE.equals(registration.getCreated())) {
+            // Drops a cached "not found" from before the user existed
+            userLookupCache.evict(registration.getId(), registration.getKeyloakId());
+            userEventPublisher.publish(registration.getKeyloakId(), UserEvent.Type.CREATED);
+        }
+        return new UserResponse(registration.getId(), registration.getKeyloakId(), registration.getEmail(),
+                registration.getPassword(), registration.getFirstName(), registration.getLastName(),
+                registration.getCreatedAt(), registration.getUpdatedAt());
+    }
 
+    /**
+     * Bulk form of {@link #register} for imports, answering in request order. Existing users are
+     * returned as they are and the new ones are inserted in one transaction, which the prod
+     * profile sends as JDBC batches. A concurrent registration of one of the new users fails the
+     * whole call with 409; retrying it then finds that user.
+     */
+    public List<UserResponse> registerAll(List<RegisterRequest> requests) {
+        if (requests.size() > maxRegisterBatch) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxRegisterBatch + " users can be registered per request");
+        }
+        Set<String> keycloakIds = requests.stream().map(RegisterRequest::getKeyloakId)
+                .filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<String> emails = requests.stream().map(RegisterRequest::getEmail).collect(Collectors.toSet());
+        Map<String, User> byKeycloakId = new HashMap<>();
+        Map<String, User> byEmail = new HashMap<>();
+        for (User user : userRepo.findByKeyloakIdInOrEmailIn(keycloakIds, emails)) {
+            if (user.getKeyloakId() != null) {
+                byKeycloakId.put(user.getKeyloakId(), user);
+            }
+            byEmail.put(user.getEmail(), user);
         }
-        User user = new User();
-        user.setEmail(request.getEmail());
-        user.setFirstName(request.getFirstName());
-        user.setLastName(request.getLastName());
-        user.setKeyloakId(request.getKeyloakId());
-        // set password from the request (consider encoding in real apps)
-        user.setPassword(request.getPassword());
-        // explicitly set role to ensure it's persisted
-        user.setRole(UserRole.USER);
-        // persist user and get saved instance (with id, timestamps populated)
-        User savedUser = userRepo.save(user);
-        UserResponse userResponse = new UserResponse();
-        userResponse.setId(savedUser.getId());
-        userResponse.setPassword(savedUser.getPassword());
-        userResponse.setEmail(savedUser.getEmail());
-        userResponse.setKeyloakId(savedUser.getKeyloakId());
-        userResponse.setFirstName(savedUser.getFirstName());
-        userResponse.setLastName(savedUser.getLastName());
-        userResponse.setCreatedAt(savedUser.getCreatedAt());
-        userResponse.setUpdatedAt(savedUser.getUpdatedAt());
-        return userResponse;
 
+        Map<RegisterRequest, User> users = new LinkedHashMap<>();
+        List<User> created = new ArrayList<>();
+        for (RegisterRequest request : requests) {
+            User user = request.getKeyloakId() != null
+                    ? byKeycloakId.get(request.getKeyloakId())
+                    : byEmail.get(request.getEmail());
+            if (user == null) {
+                if (byEmail.containsKey(request.getEmail())) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Email is already registered to another user: " + request.getEmail());
+                }
+                user = new User();
+                user.setKeyloakId(request.getKeyloakId());
+                user.setEmail(request.getEmail());
+                user.setPassword(request.getPassword());
+                user.setFirstName(request.getFirstName());
+                user.setLastName(request.getLastName());
+                created.add(user);
+                if (user.getKeyloakId() != null) {
+                    byKeycloakId.put(user.getKeyloakId(), user);
+                }
+                byEmail.put(user.getEmail(), user);
+            }
+            users.put(request, user);
+        }
 
+        try {
+            userRepo.saveAll(created);
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A user in the batch was registered concurrently");
+        }
+        for (User user : created) {
+            userLookupCache.evict(user.getId(), user.getKeyloakId());
+            userEventPublisher.publish(user.getKeyloakId(), UserEvent.Type.CREATED);
+        }
+        return requests.stream().map(users::get).map(UserService::toResponse).toList();
     }
 
-    public UserResponse getUserProfile(String userId) {
-        User user = userRepo.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User Not Found"));
-
-        UserResponse userResponse = new UserResponse();
-        userResponse.setId(user.getId());
-        userResponse.setKeyloakId(user.getKeyloakId());
-        userResponse.setPassword(user.getPassword());
-        userResponse.setEmail(user.getEmail());
-        userResponse.setFirstName(user.getFirstName());
-        userResponse.setLastName(user.getLastName());
-        userResponse.setCreatedAt(user.getCreatedAt());
-        userResponse.setUpdatedAt(user.getUpdatedAt());
+    private static UserResponse toResponse(User user) {
+        return new UserResponse(user.getId(), user.getKeyloakId(), user.getEmail(), user.getPassword(),
+                user.getFirstName(), user.getLastName(), user.getCreatedAt(), user.getUpdatedAt());
+    }
 
+    public UserResponse getUserProfile(String userId) {
+        UserResponse userResponse = userLookupCache.profileById(userId,
+                id -> userRepo.findProfileById(id).orElse(null));
+        if (userResponse == null) {
+            throw new RuntimeException("User Not Found");
+        }
         return userResponse;
     }
 
 
     public Boolean existByUserId(String userId) {
-        log.info("Calling User Validation API for userId: {}", userId);
-        return userRepo.existsByKeyloakId(userId);
+        // Debug only: this is the most frequently called endpoint in the mesh
+        log.debug("Calling User Validation API for userId: {}", userId);
+        return userLookupCache.exists(userId, userRepo::existsByKeyloakId);
     }
 
-    public UserResponse getUserByKeycloakId(String keycloakId) {
-        User user = userRepo.findByKeyloakId(keycloakId)
-                .orElseThrow(() -> new RuntimeException("User Not Found with Keycloak ID: " + keycloakId));
-
-        UserResponse userResponse = new UserResponse();
-        userResponse.setId(user.getId());
-        userResponse.setKeyloakId(user.getKeyloakId());
-        userResponse.setPassword(user.getPassword());
-        userResponse.setEmail(user.getEmail());
-        userResponse.setFirstName(user.getFirstName());
-        userResponse.setLastName(user.getLastName());
-        userResponse.setCreatedAt(user.getCreatedAt());
-        userResponse.setUpdatedAt(user.getUpdatedAt());
+    /**
+     * Answers for every id in {@code keycloakIds}: cached ids are served from memory and the
+     * rest are looked up with {@code IN} queries of at most {@code user-lookup.validate.chunk-size} ids.
+     */
+    public Map<String, Boolean> existByUserIds(Set<String> keycloakIds) {
+        if (keycloakIds.size() > maxValidateIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxValidateIds + " users can be validated per request");
+        }
+        Set<String> ids = keycloakIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        return userLookupCache.exists(ids, this::findExisting);
+    }
 
+    private Map<String, Boolean> findExisting(Set<? extends String> keycloakIds) {
+        List<String> ids = new ArrayList<>(keycloakIds);
+        Map<String, Boolean> exists = HashMap.newHashMap(ids.size());
+        for (int from = 0; from < ids.size(); from += validateChunkSize) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + validateChunkSize));
+            for (String found : userRepo.findExistingKeyloakIds(chunk)) {
+                exists.put(found, Boolean.TRUE);
+            }
+        }
+        for (String id : ids) {
+            exists.putIfAbsent(id, Boolean.FALSE);
+        }
+        return exists;
+    }
+
+    public UserResponse getUserByKeycloakId(String keycloakId) {
+        UserResponse userResponse = userLookupCache.profileByKeycloakId(keycloakId,
+                id -> userRepo.findProfileByKeyloakId(id).orElse(null));
+        if (userResponse == null) {
+            throw new RuntimeException("User Not Found with Keycloak ID: " + keycloakId);
+        }
         return userResponse;
     }
 }
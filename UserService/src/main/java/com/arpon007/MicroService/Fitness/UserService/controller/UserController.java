@@ -15,6 +15,10 @@ import com.arpon007.MicroService.Fitness.UserService.dto.UserResponse;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/api/users")
 @AllArgsConstructor
@@ -32,11 +36,23 @@ public class UserController {
         return ResponseEntity.ok(userService.register(req));
 
     }
+    // Body: a JSON array of RegisterRequest; answers with one UserResponse per entry, in order
+    @PostMapping("/register/batch")
+    public ResponseEntity<List<UserResponse>> registerUsers(@RequestBody List<@Valid RegisterRequest> reqs) {
+        return ResponseEntity.ok(userService.registerAll(reqs));
+    }
+
     @GetMapping("/{userId}/validate")
     public ResponseEntity<Boolean> validateUser(@PathVariable String userId){
         return ResponseEntity.ok(userService.existByUserId(userId));
     }
 
+    // Body: a JSON array of Keycloak ids; answers with an entry for each of them
+    @PostMapping("/validate")
+    public ResponseEntity<Map<String, Boolean>> validateUsers(@RequestBody Set<String> keycloakIds){
+        return ResponseEntity.ok(userService.existByUserIds(keycloakIds));
+    }
+
     @GetMapping("/keycloak/{keycloakId}")
     public ResponseEntity<UserResponse> getUserByKeycloakId(@PathVariable String keycloakId){
         return ResponseEntity.ok(userService.getUserByKeycloakId(keycloakId));
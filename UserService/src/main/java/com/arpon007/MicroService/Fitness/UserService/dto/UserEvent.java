@@ -0,0 +1,22 @@
+package com.arpon007.MicroService.Fitness.UserService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Published on the user events topic whenever a user is created or removed, so that
+ * services caching user validation results can drop their stale entries.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserEvent {
+    public enum Type {
+        CREATED,
+        DELETED
+    }
+
+    private String keycloakId;
+    private Type type;
+}
@@ -1,9 +1,15 @@
 package com.arpon007.MicroService.Fitness.UserService.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
+// Constructor order is used by the projection queries in UserRepo
+@AllArgsConstructor
 public class UserResponse {
 
     private String id;
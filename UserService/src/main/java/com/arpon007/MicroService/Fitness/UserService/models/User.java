@@ -12,17 +12,20 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Data;
 
 @Entity
-@Table(name = "users")
+// Every user validation in the mesh looks users up by keyloak_id
+@Table(name = "users", indexes = @Index(name = "uk_users_keyloak_id", columnList = "keyloak_id", unique = true))
 @Data
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
 
+    @Column(name = "keyloak_id")
     private String keyloakId;
 
     @Column(unique = true, nullable = false)
@@ -0,0 +1,15 @@
+-- The schema as Hibernate's ddl-auto created it; databases that already have it are baselined at this version
+create table users (
+    id         varchar(255) not null primary key,
+    keyloak_id varchar(255),
+    email      varchar(255) not null,
+    password   varchar(255) not null,
+    first_name varchar(255),
+    last_name  varchar(255),
+    role       varchar(255) not null check (role in ('USER', 'ADMIN')),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    constraint uk_users_email unique (email)
+);
+
+create unique index uk_users_keyloak_id on users (keyloak_id);
@@ -0,0 +1,62 @@
+package com.arpon007.MicroService.Fitness.UserService.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.arpon007.MicroService.Fitness.UserService.dto.UserResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UserLookupCacheTest {
+    private final UserLookupCache cache = new UserLookupCache(100, Duration.ofMinutes(10), Duration.ofSeconds(30),
+            new SimpleMeterRegistry());
+
+    @Test
+    void unknownUsersAreCachedUntilTheyRegister() {
+        AtomicInteger queries = new AtomicInteger();
+        boolean[] registered = {false};
+
+        assertThat(cache.exists("kc-1", id -> { queries.incrementAndGet(); return registered[0]; })).isFalse();
+        assertThat(cache.exists("kc-1", id -> { queries.incrementAndGet(); return registered[0]; })).isFalse();
+        assertThat(queries).hasValue(1);
+
+        registered[0] = true;
+        cache.evict("u-1", "kc-1");
+
+        assertThat(cache.exists("kc-1", id -> { queries.incrementAndGet(); return registered[0]; })).isTrue();
+        assertThat(queries).hasValue(2);
+    }
+
+    @Test
+    void bulkLookupsOnlyQueryUncachedIds() {
+        cache.exists("kc-1", id -> true);
+        List<Set<? extends String>> queried = new ArrayList<>();
+
+        Map<String, Boolean> answers = cache.exists(Set.of("kc-1", "kc-2", "kc-3"), ids -> {
+            queried.add(Set.copyOf(ids));
+            return Map.of("kc-2", true, "kc-3", false);
+        });
+
+        assertThat(answers).isEqualTo(Map.of("kc-1", true, "kc-2", true, "kc-3", false));
+        assertThat(queried).containsExactly(Set.of("kc-2", "kc-3"));
+    }
+
+    @Test
+    void missingProfilesAreNotCached() {
+        AtomicInteger queries = new AtomicInteger();
+        UserResponse profile = new UserResponse();
+
+        assertThat(cache.profileById("u-1", id -> { queries.incrementAndGet(); return null; })).isNull();
+        assertThat(cache.profileById("u-1", id -> { queries.incrementAndGet(); return profile; })).isSameAs(profile);
+        assertThat(cache.profileById("u-1", id -> { queries.incrementAndGet(); return null; })).isSameAs(profile);
+        assertThat(queries).hasValue(2);
+    }
+}
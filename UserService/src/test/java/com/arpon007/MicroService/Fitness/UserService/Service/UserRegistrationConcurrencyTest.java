@@ -0,0 +1,149 @@
+package com.arpon007.MicroService.Fitness.UserService.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.arpon007.MicroService.Fitness.UserService.dto.RegisterRequest;
+import com.arpon007.MicroService.Fitness.UserService.dto.UserEvent;
+import com.arpon007.MicroService.Fitness.UserService.dto.UserResponse;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Runs against an embedded Postgres with the schema from the Flyway migrations, so the 300
+ * parallel registrations never reach a shared database. Every test uses fresh ids and
+ * removes its rows afterwards.
+ */
+@SpringBootTest
+class UserRegistrationConcurrencyTest {
+    private static final int REGISTRATIONS = 300;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        // Stopped by its own shutdown hook when the test JVM exits
+        EmbeddedPostgres postgres = EmbeddedPostgres.start();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+    }
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @MockitoBean
+    private UserEventPublisher userEventPublisher;
+
+    private final String suffix = UUID.randomUUID().toString();
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from users where email like ?", "%" + suffix + "%");
+    }
+
+    @Test
+    void parallelFirstRequestsOfOneUserCreateItOnce() throws Exception {
+        String keycloakId = "kc-" + suffix;
+        List<UserResponse> responses = registerInParallel(request(keycloakId, "runner-" + suffix + "@fitness.test"));
+
+        assertThat(responses).hasSize(REGISTRATIONS);
+        Set<String> ids = responses.stream().map(UserResponse::getId).collect(Collectors.toSet());
+        assertThat(ids).hasSize(1);
+        assertThat(jdbc.queryForObject("select count(*) from users where keyloak_id = ?", Long.class, keycloakId))
+                .isEqualTo(1);
+        verify(userEventPublisher, times(1)).publish(keycloakId, UserEvent.Type.CREATED);
+    }
+
+    @Test
+    void parallelRegistrationsWithoutKeycloakIdAreKeyedOnEmail() throws Exception {
+        String email = "walker-" + suffix + "@fitness.test";
+        List<UserResponse> responses = registerInParallel(request(null, email));
+
+        assertThat(responses.stream().map(UserResponse::getId).distinct()).hasSize(1);
+        assertThat(jdbc.queryForObject("select count(*) from users where email = ?", Long.class, email))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void anEmailTakenByAnotherUserIsAConflict() {
+        String email = "swimmer-" + suffix + "@fitness.test";
+        userService.register(request("kc-a-" + suffix, email));
+
+        assertThatThrownBy(() -> userService.register(request("kc-b-" + suffix, email)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    @Test
+    void bulkRegistrationInsertsOnlyNewUsersAndAnswersInOrder() {
+        UserResponse existing = userService.register(request("kc-old-" + suffix, "old-" + suffix + "@fitness.test"));
+
+        List<UserResponse> responses = userService.registerAll(List.of(
+                request("kc-new-" + suffix, "new-" + suffix + "@fitness.test"),
+                request("kc-old-" + suffix, "old-" + suffix + "@fitness.test"),
+                request(null, "plain-" + suffix + "@fitness.test")));
+
+        assertThat(responses).extracting(UserResponse::getEmail).containsExactly(
+                "new-" + suffix + "@fitness.test", "old-" + suffix + "@fitness.test", "plain-" + suffix + "@fitness.test");
+        assertThat(responses.get(1).getId()).isEqualTo(existing.getId());
+        assertThat(responses.get(0).getId()).isNotNull();
+        verify(userEventPublisher, times(1)).publish("kc-new-" + suffix, UserEvent.Type.CREATED);
+        assertThat(jdbc.queryForObject("select count(*) from users where email like ?", Long.class, "%" + suffix + "%"))
+                .isEqualTo(3);
+    }
+
+    private List<UserResponse> registerInParallel(RegisterRequest request) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UserResponse>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < REGISTRATIONS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return userService.register(request);
+                }));
+            }
+            start.countDown();
+            List<UserResponse> responses = new ArrayList<>();
+            for (Future<UserResponse> future : futures) {
+                responses.add(future.get());
+            }
+            return responses;
+        }
+    }
+
+    private static RegisterRequest request(String keycloakId, String email) {
+        RegisterRequest request = new RegisterRequest();
+        request.setKeyloakId(keycloakId);
+        request.setEmail(email);
+        request.setPassword("secret1");
+        request.setFirstName("Sam");
+        request.setLastName("Lee");
+        return request;
+    }
+}
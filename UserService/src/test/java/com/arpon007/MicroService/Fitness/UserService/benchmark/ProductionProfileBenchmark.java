@@ -0,0 +1,158 @@
+package com.arpon007.MicroService.Fitness.UserService.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.arpon007.MicroService.Fitness.UserService.UserServiceApplication;
+import com.arpon007.MicroService.Fitness.UserService.Repo.UserRepo;
+import com.arpon007.MicroService.Fitness.UserService.dto.UserResponse;
+import com.arpon007.MicroService.Fitness.UserService.models.User;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Throughput of the service's database work with {@code user-service.yml} alone ({@code default})
+ * and with {@code user-service-prod.yml} on top ({@code prod}), each in its own schema:
+ * {@code insertBatch} is the insert half of bulk registration (100 new users), {@code findProfileById}
+ * the profile query behind {@code GET /api/users/{id}} on a cache miss, for one of
+ * {@code benchmark.users} seeded users (10,000 by default), and
+ * {@code validateConcurrently} the validate query from 32 threads. Runs on an embedded Postgres,
+ * or on a running server when {@code benchmark.jdbc-url} is set.
+ * Config files are read from {@code benchmark.config-dir}. Run {@link #main} from the
+ * UserService directory after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductionProfileBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"default", "prod"})
+    public String profile;
+
+    private EmbeddedPostgres embedded;
+    private ConfigurableApplicationContext context;
+    private UserRepo userRepo;
+    private String[] userIds;
+    private String[] keycloakIds;
+    private final AtomicLong registered = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException {
+        String url = System.getProperty("benchmark.jdbc-url");
+        String username = System.getProperty("benchmark.username", "postgres");
+        String password = System.getProperty("benchmark.password", "postgres");
+        String configDir = System.getProperty("benchmark.config-dir", "../configServer/src/main/resources/config");
+        int users = Integer.getInteger("benchmark.users", 10_000);
+        if (url == null) {
+            embedded = EmbeddedPostgres.start();
+            url = embedded.getJdbcUrl(username, "postgres");
+        }
+
+        String schema = "benchmark_" + profile;
+        // Seeds outside the application's pool, which does not auto-commit in the prod profile
+        SingleConnectionDataSource admin = new SingleConnectionDataSource(url, username, password, true);
+        JdbcTemplate jdbc = new JdbcTemplate(admin);
+        jdbc.execute("drop schema if exists " + schema + " cascade; create schema " + schema);
+
+        String imports = "file:" + configDir + "/user-service.yml"
+                + ("prod".equals(profile) ? ",file:" + configDir + "/user-service-prod.yml" : "");
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                // Command-line arguments, so they win over the imported files
+                .run("--spring.config.import=" + imports,
+                        "--spring.cloud.config.enabled=false",
+                        "--eureka.client.enabled=false",
+                        "--spring.datasource.url=" + url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema,
+                        "--spring.datasource.username=" + username,
+                        "--spring.datasource.password=" + password,
+                        // Logging every statement would dominate the default profile
+                        "--spring.jpa.show-sql=false");
+        userRepo = context.getBean(UserRepo.class);
+
+        jdbc.execute("set search_path to " + schema);
+        jdbc.update("""
+                insert into users (id, keyloak_id, email, password, first_name, last_name, role, created_at, updated_at)
+                select gen_random_uuid()::text, 'kc-' || g, 'user' || g || '@benchmark.test', 'secret',
+                       'First' || g, 'Last' || g, 'USER', now(), now()
+                from generate_series(1, ?) g
+                """, users);
+        jdbc.execute("vacuum analyze users");
+        userIds = jdbc.queryForList("select id from users", String.class).toArray(String[]::new);
+        keycloakIds = jdbc.queryForList("select keyloak_id from users", String.class).toArray(String[]::new);
+        admin.destroy();
+        System.out.printf("%n%s: pool %s%n", profile,
+                context.getEnvironment().getProperty("spring.datasource.hikari.maximum-pool-size", "10 (default)"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+
+    @Benchmark
+    public List<User> insertBatch() {
+        List<User> users = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            long n = registered.incrementAndGet();
+            User user = new User();
+            user.setKeyloakId("kc-new-" + n);
+            user.setEmail("new" + n + "@benchmark.test");
+            user.setPassword("secret");
+            user.setFirstName("First" + n);
+            user.setLastName("Last" + n);
+            users.add(user);
+        }
+        return userRepo.saveAll(users);
+    }
+
+    @Benchmark
+    public UserResponse findProfileById() {
+        return userRepo.findProfileById(userIds[ThreadLocalRandom.current().nextInt(userIds.length)]).orElseThrow();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean validateConcurrently() {
+        return userRepo.existsByKeyloakId(keycloakIds[ThreadLocalRandom.current().nextInt(keycloakIds.length)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductionProfileBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
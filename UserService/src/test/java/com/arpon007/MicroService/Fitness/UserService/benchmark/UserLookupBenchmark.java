@@ -0,0 +1,184 @@
+package com.arpon007.MicroService.Fitness.UserService.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.arpon007.MicroService.Fitness.UserService.UserServiceApplication;
+import com.arpon007.MicroService.Fitness.UserService.Repo.UserRepo;
+import com.arpon007.MicroService.Fitness.UserService.Service.UserService;
+import com.arpon007.MicroService.Fitness.UserService.dto.UserResponse;
+import com.arpon007.MicroService.Fitness.UserService.models.User;
+
+/**
+ * Validate and profile lookups against a {@code users} table of {@code benchmark.users} rows
+ * (1,000,000 by default), seeded on first use, in the Postgres database at
+ * {@code benchmark.jdbc-url} (create it first, e.g. {@code createdb user-service-benchmark}).
+ * {@code existsSeqScan} runs the validate query with index scans switched off, which is how
+ * it ran before {@code uk_users_keyloak_id}; {@code profileEntity} is the previous
+ * load-and-copy path. Query plans are printed during setup. Run {@link #main} from the
+ * UserService test classpath after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserLookupBenchmark {
+    private static final String EXISTS = "select exists(select 1 from users where keyloak_id = ?)";
+    private static final int SAMPLE = 1024;
+
+    private ConfigurableApplicationContext context;
+    private UserRepo userRepo;
+    private UserService userService;
+    private SingleConnectionDataSource noIndexDataSource;
+    private JdbcTemplate noIndexJdbc;
+    private String[] keycloakIds;
+    private String[] userIds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        String url = System.getProperty("benchmark.jdbc-url", "jdbc:postgresql://localhost:5432/user-service-benchmark");
+        String username = System.getProperty("benchmark.username", "postgres");
+        String password = System.getProperty("benchmark.password", "postgres");
+        int users = Integer.getInteger("benchmark.users", 1_000_000);
+
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.cloud.config.enabled=false",
+                        "eureka.client.enabled=false",
+                        "spring.datasource.url=" + url,
+                        "spring.datasource.username=" + username,
+                        "spring.datasource.password=" + password,
+                        "spring.jpa.hibernate.ddl-auto=update",
+                        "kafka.topic.user-events=user-events")
+                .run();
+        userRepo = context.getBean(UserRepo.class);
+        userService = context.getBean(UserService.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        seed(jdbc, users);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        keycloakIds = new String[SAMPLE];
+        for (int i = 0; i < SAMPLE; i++) {
+            keycloakIds[i] = "kc-" + random.nextInt(1, users + 1);
+        }
+        List<String> ids = jdbc.queryForList("select id from users where keyloak_id = any(?)", String.class,
+                (Object) keycloakIds);
+        userIds = ids.toArray(String[]::new);
+
+        noIndexDataSource = new SingleConnectionDataSource(url, username, password, true);
+        noIndexJdbc = new JdbcTemplate(noIndexDataSource);
+        noIndexJdbc.execute("set enable_indexscan = off");
+        noIndexJdbc.execute("set enable_indexonlyscan = off");
+        noIndexJdbc.execute("set enable_bitmapscan = off");
+
+        System.out.printf("%nusers: %d%n", jdbc.queryForObject("select count(*) from users", Long.class));
+        System.out.println("validate before the index:\n" + explain(noIndexJdbc, keycloakIds[0]));
+        System.out.println("validate with uk_users_keyloak_id:\n" + explain(jdbc, keycloakIds[0]));
+    }
+
+    private static void seed(JdbcTemplate jdbc, int users) {
+        long existing = jdbc.queryForObject("select count(*) from users", Long.class);
+        if (existing >= users) {
+            return;
+        }
+        jdbc.update("""
+                insert into users (id, keyloak_id, email, password, first_name, last_name, role, created_at, updated_at)
+                select gen_random_uuid()::text, 'kc-' || g, 'user' || g || '@benchmark.test', 'secret',
+                       'First' || g, 'Last' || g, 'USER', now(), now()
+                from generate_series(?, ?) g
+                """, existing + 1, users);
+        // Sets the visibility map bits that let the exists query skip the heap
+        jdbc.execute("vacuum analyze users");
+    }
+
+    private static String explain(JdbcTemplate jdbc, String keycloakId) {
+        return String.join("\n", jdbc.queryForList("explain (analyze, costs off, timing off) " + EXISTS,
+                String.class, keycloakId));
+    }
+
+    @TearDown
+    public void tearDown() {
+        noIndexDataSource.destroy();
+        context.close();
+    }
+
+    private String nextKeycloakId() {
+        return keycloakIds[next++ & (SAMPLE - 1)];
+    }
+
+    private String nextUserId() {
+        return userIds[next++ % userIds.length];
+    }
+
+    @Benchmark
+    public Boolean existsSeqScan() {
+        return noIndexJdbc.queryForObject(EXISTS, Boolean.class, nextKeycloakId());
+    }
+
+    @Benchmark
+    public boolean existsIndexOnly() {
+        return userRepo.existsByKeyloakId(nextKeycloakId());
+    }
+
+    @Benchmark
+    public Boolean validateCached() {
+        return userService.existByUserId(nextKeycloakId());
+    }
+
+    @Benchmark
+    public UserResponse profileEntity() {
+        User user = userRepo.findById(nextUserId()).orElseThrow();
+        UserResponse userResponse = new UserResponse();
+        userResponse.setId(user.getId());
+        userResponse.setKeyloakId(user.getKeyloakId());
+        userResponse.setPassword(user.getPassword());
+        userResponse.setEmail(user.getEmail());
+        userResponse.setFirstName(user.getFirstName());
+        userResponse.setLastName(user.getLastName());
+        userResponse.setCreatedAt(user.getCreatedAt());
+        userResponse.setUpdatedAt(user.getUpdatedAt());
+        return userResponse;
+    }
+
+    @Benchmark
+    public UserResponse profileProjection() {
+        return userRepo.findProfileById(nextUserId()).orElseThrow();
+    }
+
+    @Benchmark
+    public UserResponse profileCached() {
+        return userService.getUserProfile(nextUserId());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserLookupBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,47 @@
+package com.arpon007.fitness.aiservice.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+@Configuration
+public class GeminiClientConfig {
+
+    /**
+     * Dedicated client for the Gemini API. Every request holds one pooled connection, so
+     * {@code max-connections} is also the limit on requests in flight; callers beyond it
+     * wait in a bounded queue and fail after {@code pending-acquire-timeout} instead of
+     * piling up.
+     */
+    @Bean
+    public WebClient geminiWebClient(WebClient.Builder webClientBuilder,
+                                     @Value("${gemini.client.connect-timeout:2s}") Duration connectTimeout,
+                                     @Value("${gemini.client.read-timeout:30s}") Duration readTimeout,
+                                     @Value("${gemini.client.max-connections:32}") int maxConnections,
+                                     @Value("${gemini.client.pending-acquire-max-count:256}") int pendingAcquireMaxCount,
+                                     @Value("${gemini.client.pending-acquire-timeout:10s}") Duration pendingAcquireTimeout,
+                                     @Value("${gemini.client.max-idle-time:30s}") Duration maxIdleTime) {
+        ConnectionProvider provider = ConnectionProvider.builder("gemini")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .evictInBackground(maxIdleTime)
+                .build();
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout)
+                .keepAlive(true);
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
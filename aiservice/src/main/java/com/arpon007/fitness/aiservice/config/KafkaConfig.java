@@ -3,17 +3,33 @@ package com.arpon007.fitness.aiservice.config;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 
-import com.arpon007.fitness.aiservice.model.Activity;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.arpon007.fitness.commons.concurrent.VirtualThreads;
+import com.arpon007.fitness.events.ActivityEventDeserializer;
+import com.arpon007.fitness.events.ActivityEventSerializer;
+import com.arpon007.fitness.events.avro.ActivityEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableKafka
@@ -22,33 +38,89 @@ public class KafkaConfig {
     @Value("${kafka.bootstrap-servers}")
     private String bootstrapServers;
 
-    private final ObjectMapper objectMapper;
+    @Value("${kafka.topic.dlt}")
+    private String deadLetterTopic;
 
-    public KafkaConfig(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
-    }
+    @Value("${kafka.consumer.max-poll-records:50}")
+    private int maxPollRecords;
+
+    // Boot only applies spring.threads.virtual.enabled to the listener factory it creates itself
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
 
     @Bean
-    public ConsumerFactory<String, Activity> consumerFactory() {
+    public ConsumerFactory<String, ActivityEvent> consumerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> props = new HashMap<>();
         props.put("bootstrap.servers", bootstrapServers);
         props.put("group.id", "activity-processor-group");
         props.put("key.deserializer", "org.apache.kafka.common.serialization.StringDeserializer");
+        props.put("max.poll.records", maxPollRecords);
 
-        JsonDeserializer<Activity> deserializer = new JsonDeserializer<>(Activity.class, objectMapper);
-        deserializer.setUseTypeHeaders(false);
-        deserializer.configure(props, false);
+        // A record that cannot be decoded reaches the listener with a null value and its raw
+        // bytes in a header, instead of failing every poll of its partition
+        DefaultKafkaConsumerFactory<String, ActivityEvent> factory = new DefaultKafkaConsumerFactory<>(props,
+            new StringDeserializer(),
+            new ErrorHandlingDeserializer<>(new ActivityEventDeserializer()));
+        // Client metrics such as records-lag-max, tagged with each lane's client id
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
 
-        return new DefaultKafkaConsumerFactory<>(props,
-            new org.apache.kafka.common.serialization.StringDeserializer(),
-            deserializer);
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ActivityEvent> kafkaListenerContainerFactory(
+            ConsumerFactory<String, ActivityEvent> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, ActivityEvent> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        // Each lane sets its own concurrency (one consumer thread per partition up to that limit);
+        // each poll is handed over as one batch and offsets are committed only after the listener
+        // returns (AckMode.BATCH)
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        if (virtualThreads) {
+            factory.getContainerProperties().setListenerTaskExecutor(VirtualThreads.kafkaListenerExecutor("ai-kafka-"));
+        }
+        return factory;
     }
 
+    // Record at a time, so the retry topics can hold back each event until its delay has passed
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Activity> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, Activity> factory =
+    public ConcurrentKafkaListenerContainerFactory<String, ActivityEvent> retryListenerContainerFactory(
+            ConsumerFactory<String, ActivityEvent> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, ActivityEvent> factory =
             new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        factory.setConsumerFactory(consumerFactory);
+        if (virtualThreads) {
+            factory.getContainerProperties().setListenerTaskExecutor(VirtualThreads.kafkaListenerExecutor("ai-kafka-retry-"));
+        }
         return factory;
     }
+
+    // Writes events to the retry topics and the raw bytes of undecodable records to the dead-letter topic
+    @Bean
+    public KafkaTemplate<String, Object> recommendationKafkaTemplate() {
+        Map<String, Object> props = new HashMap<>();
+        props.put("bootstrap.servers", bootstrapServers);
+        props.put("acks", "all");
+
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props,
+            new StringSerializer(),
+            new DelegatingByTypeSerializer(Map.of(
+                byte[].class, new ByteArraySerializer(),
+                ActivityEvent.class, new ActivityEventSerializer()))));
+    }
+
+    // Created on startup like the retry topics; its broker-default partition count is enough, see below
+    @Bean
+    public NewTopic deadLetterTopic() {
+        return TopicBuilder.name(deadLetterTopic).build();
+    }
+
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(
+            KafkaTemplate<String, Object> recommendationKafkaTemplate) {
+        // Partition -1 leaves the choice to the producer, so the topic needs no matching partition count
+        return new DeadLetterPublishingRecoverer(recommendationKafkaTemplate,
+            (record, exception) -> new TopicPartition(deadLetterTopic, -1));
+    }
 }
@@ -0,0 +1,29 @@
+package com.arpon007.fitness.aiservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * LLM output stored under the fingerprint of the activity it was generated for, so that
+ * activities with the same fingerprint can reuse it.
+ */
+@Document(collection = "recommendation_cache")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CachedRecommendation {
+    @Id
+    private String fingerprint;
+    private String recommendation;
+    private List<String> improvements;
+    private List<String> suggestions;
+    private LocalDateTime createdAt;
+}
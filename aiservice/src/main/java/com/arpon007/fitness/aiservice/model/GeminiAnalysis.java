@@ -0,0 +1,41 @@
+package com.arpon007.fitness.aiservice.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The JSON document the prompt asks Gemini to answer with.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GeminiAnalysis {
+    private Analysis analysis;
+    private List<Improvement> improvements;
+    private List<Suggestion> suggestions;
+    private List<String> safety;
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Analysis {
+        private String overall;
+        private String pace;
+        private String heartRate;
+        private String caloriesBurned;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Improvement {
+        private String area;
+        private String recommendation;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Suggestion {
+        private String workout;
+        private String description;
+    }
+}
@@ -1,13 +1,16 @@
 package com.arpon007.fitness.aiservice.service;
 
-import com.arpon007.fitness.aiservice.model.Activity;
+import com.arpon007.fitness.aiservice.model.CachedRecommendation;
+import com.arpon007.fitness.aiservice.model.GeminiAnalysis;
 import com.arpon007.fitness.aiservice.model.Recommendation;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.arpon007.fitness.events.ActivityEventMetrics;
+import com.arpon007.fitness.events.avro.ActivityEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -18,123 +21,131 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ActivityAIService {
     private final GeminiService geminiService;
+    private final RecommendationCache recommendationCache;
+    private final GeminiResponseParser geminiResponseParser;
+
+    @Value("${recommendation.cache.duration-bucket-minutes:5}")
+    private int durationBucket;
+
+    @Value("${recommendation.cache.calories-bucket:50}")
+    private int caloriesBucket;
+
+    public Recommendation generateRecommendation(ActivityEvent activity) {
+        String fingerprint = RecommendationFingerprint.of(activity, durationBucket, caloriesBucket);
+        CachedRecommendation cached = recommendationCache.get(fingerprint);
+        if (cached != null) {
+            return toRecommendation(activity, cached);
+        }
 
-    public Recommendation generateRecommendation(Activity activity) {
         String prompt = createPromptForActivity(activity);
         String aiResponse = geminiService.getAnswer(prompt);
         log.info("RESPONSE FROM AI: {}", aiResponse);
-        return processAiResponse(activity, aiResponse);
-    }
-
-    private Recommendation processAiResponse(Activity activity, String aiResponse) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(aiResponse);
-
-            JsonNode textNode = rootNode.path("candidates")
-                    .get(0)
-                    .path("content")
-                    .path("parts")
-                    .get(0)
-                    .path("text");
-
-            String jsonContent = textNode.asText()
-                    .replaceAll("```json\\n","")
-                    .replaceAll("\\n```", "")
-                    .trim();
-
-            JsonNode analysisJson = mapper.readTree(jsonContent);
-            JsonNode analysisNode = analysisJson.path("analysis");
-
-            StringBuilder fullAnalysis = new StringBuilder();
-            addAnalysisSection(fullAnalysis, analysisNode, "overall", "Overall:");
-            addAnalysisSection(fullAnalysis, analysisNode, "pace", "Pace:");
-            addAnalysisSection(fullAnalysis, analysisNode, "heartRate", "Heart Rate:");
-            addAnalysisSection(fullAnalysis, analysisNode, "caloriesBurned", "Calories:");
-
-            List<String> improvements = extractImprovements(analysisJson.path("improvements"));
-            List<String> suggestions = extractSuggestions(analysisJson.path("suggestions"));
-            List<String> safety = extractSafetyGuidelines(analysisJson.path("safety"));
-
-            // Include safety guidelines in the recommendation text since Recommendation model doesn't have safety field
-            if (!safety.isEmpty()) {
-                fullAnalysis.append("Safety Guidelines: ").append(String.join(", ", safety)).append("\n");
-            }
-
-            return Recommendation.builder()
-                    .activityId(activity.getId())
-                    .userId(activity.getUserId())
-                    .recommendation(fullAnalysis.toString().trim())
-                    .improvements(improvements)
-                    .suggestions(suggestions)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-        } catch (Exception e) {
-            log.error("Error processing AI response: ", e);
-            return createDefaultRecommendation(activity);
+            CachedRecommendation analysis = processAiResponse(fingerprint, aiResponse);
+            recommendationCache.put(analysis);
+            return toRecommendation(activity, analysis);
+        } catch (IOException e) {
+            // Surfaced rather than papered over with a canned answer: the listener sends the
+            // activity to the retry topic, and nothing unparseable is cached
+            throw new IllegalStateException("Unparseable recommendation for activity " + activity.getId(), e);
         }
     }
 
-    private Recommendation createDefaultRecommendation(Activity activity) {
+    private Recommendation toRecommendation(ActivityEvent activity, CachedRecommendation analysis) {
         return Recommendation.builder()
                 .activityId(activity.getId())
                 .userId(activity.getUserId())
-                .recommendation("Great workout! Keep up the good work and maintain consistency. Safety Guidelines: Always warm up before exercise, Stay hydrated, Listen to your body")
-                .improvements(Collections.singletonList("Continue with your current routine"))
-                .suggestions(Collections.singletonList("Consider consulting a fitness professional"))
+                .recommendation(analysis.getRecommendation())
+                .improvements(analysis.getImprovements())
+                .suggestions(analysis.getSuggestions())
                 .createdAt(LocalDateTime.now())
                 .build();
     }
 
-    private List<String> extractSafetyGuidelines(JsonNode safetyNode) {
+    private CachedRecommendation processAiResponse(String fingerprint, String aiResponse) throws IOException {
+        GeminiAnalysis result = geminiResponseParser.parse(aiResponse);
+
+        StringBuilder fullAnalysis = new StringBuilder();
+        GeminiAnalysis.Analysis analysis = result.getAnalysis();
+        if (analysis != null) {
+            addAnalysisSection(fullAnalysis, "Overall:", analysis.getOverall());
+            addAnalysisSection(fullAnalysis, "Pace:", analysis.getPace());
+            addAnalysisSection(fullAnalysis, "Heart Rate:", analysis.getHeartRate());
+            addAnalysisSection(fullAnalysis, "Calories:", analysis.getCaloriesBurned());
+        }
+
+        List<String> improvements = extractImprovements(result.getImprovements());
+        List<String> suggestions = extractSuggestions(result.getSuggestions());
+        List<String> safety = extractSafetyGuidelines(result.getSafety());
+
+        // Include safety guidelines in the recommendation text since Recommendation model doesn't have safety field
+        if (!safety.isEmpty()) {
+            fullAnalysis.append("Safety Guidelines: ").append(String.join(", ", safety)).append("\n");
+        }
+
+        return CachedRecommendation.builder()
+                .fingerprint(fingerprint)
+                .recommendation(fullAnalysis.toString().trim())
+                .improvements(improvements)
+                .suggestions(suggestions)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private List<String> extractSafetyGuidelines(List<String> safetyItems) {
         List<String> safety = new ArrayList<>();
-        if (safetyNode.isArray()) {
-            safetyNode.forEach(item -> safety.add(item.asText()));
+        if (safetyItems != null) {
+            for (String item : safetyItems) {
+                safety.add(item == null ? "" : item);
+            }
         }
         return safety.isEmpty() ?
                 Collections.singletonList("Follow general safety guidelines") :
                 safety;
     }
 
-    private List<String> extractSuggestions(JsonNode suggestionsNode) {
+    private List<String> extractSuggestions(List<GeminiAnalysis.Suggestion> suggestionItems) {
         List<String> suggestions = new ArrayList<>();
-        if (suggestionsNode.isArray()) {
-            suggestionsNode.forEach(suggestion -> {
-                String workout = suggestion.path("workout").asText();
-                String description = suggestion.path("description").asText();
-                suggestions.add(String.format("%s: %s", workout, description));
-            });
+        if (suggestionItems != null) {
+            for (GeminiAnalysis.Suggestion suggestion : suggestionItems) {
+                suggestions.add(joinLabel(suggestion.getWorkout(), suggestion.getDescription()));
+            }
         }
         return suggestions.isEmpty() ?
                 Collections.singletonList("No specific suggestions provided") :
                 suggestions;
     }
 
-    private List<String> extractImprovements(JsonNode improvementsNode) {
+    private List<String> extractImprovements(List<GeminiAnalysis.Improvement> improvementItems) {
         List<String> improvements = new ArrayList<>();
-        if (improvementsNode.isArray()) {
-            improvementsNode.forEach(improvement -> {
-                String area = improvement.path("area").asText();
-                String detail = improvement.path("recommendation").asText();
-                improvements.add(String.format("%s: %s", area, detail));
-            });
+        if (improvementItems != null) {
+            for (GeminiAnalysis.Improvement improvement : improvementItems) {
+                improvements.add(joinLabel(improvement.getArea(), improvement.getRecommendation()));
+            }
         }
         return improvements.isEmpty() ?
                 Collections.singletonList("No specific improvements provided") :
                 improvements;
     }
 
-    private void addAnalysisSection(StringBuilder fullAnalysis, JsonNode analysisNode, String key, String prefix) {
-        if (!analysisNode.path(key).isMissingNode()) {
+    private static String joinLabel(String label, String detail) {
+        String safeLabel = label == null ? "" : label;
+        String safeDetail = detail == null ? "" : detail;
+        return new StringBuilder(safeLabel.length() + safeDetail.length() + 2)
+                .append(safeLabel).append(": ").append(safeDetail)
+                .toString();
+    }
+
+    private void addAnalysisSection(StringBuilder fullAnalysis, String prefix, String value) {
+        if (value != null) {
             fullAnalysis.append(prefix)
                     .append(" ")
-                    .append(analysisNode.path(key).asText())
+                    .append(value)
                     .append("\n");
         }
     }
 
-    private String createPromptForActivity(Activity activity) {
+    private String createPromptForActivity(ActivityEvent activity) {
         return String.format("""
                         Analyze this fitness activity and provide detailed recommendations in the following EXACT JSON format:
                         {
@@ -174,7 +185,7 @@ public class ActivityAIService {
                 activity.getType(),
                 activity.getDuration(),
                 activity.getCaloriesBurned(),
-                activity.getAdditionalMetrics()
+                ActivityEventMetrics.asMap(activity.getMetrics())
         );
     }
 }
\ No newline at end of file
@@ -1,25 +1,156 @@
 package com.arpon007.fitness.aiservice.service;
 
-import com.arpon007.fitness.aiservice.model.Activity;
 import com.arpon007.fitness.aiservice.model.Recommendation;
 import com.arpon007.fitness.aiservice.repo.RecommendationRepository;
-import lombok.RequiredArgsConstructor;
+import com.arpon007.fitness.events.avro.ActivityEvent;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.log.LogAccessor;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Generates recommendations for the live and backfill lanes. An event whose recommendation
+ * fails (the LLM call or its response) is handed to the retry topic, where
+ * {@link RecommendationRetryListener} tries again with growing delays; records that cannot be
+ * decoded go straight to the dead-letter topic. Neither holds up the rest of the batch.
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ActivityMessageListener {
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(LogFactory.getLog(ActivityMessageListener.class));
+
     private final ActivityAIService activityAIService;
     private final RecommendationRepository recommendationRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final DeadLetterPublishingRecoverer deadLetters;
+    private final RecommendationLaneMetrics laneMetrics;
+    private final String retryTopic;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // One pool per lane, shared by that lane's consumer threads, so backfill can never use up
+    // the LLM calls live events need
+    private final Map<RecommendationLane, Semaphore> llmPermits = new EnumMap<>(RecommendationLane.class);
+
+    public ActivityMessageListener(ActivityAIService activityAIService,
+                                   RecommendationRepository recommendationRepository,
+                                   KafkaTemplate<String, Object> recommendationKafkaTemplate,
+                                   DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                   RecommendationLaneMetrics laneMetrics,
+                                   @Value("${kafka.topic.retry}") String retryTopic,
+                                   @Value("${recommendation.lanes.live.max-parallel-llm-calls:12}") int liveLlmCalls,
+                                   @Value("${recommendation.lanes.backfill.max-parallel-llm-calls:4}") int backfillLlmCalls) {
+        this.activityAIService = activityAIService;
+        this.recommendationRepository = recommendationRepository;
+        this.kafkaTemplate = recommendationKafkaTemplate;
+        this.deadLetters = deadLetterPublishingRecoverer;
+        this.laneMetrics = laneMetrics;
+        this.retryTopic = retryTopic;
+        this.llmPermits.put(RecommendationLane.LIVE, new Semaphore(liveLlmCalls));
+        this.llmPermits.put(RecommendationLane.BACKFILL, new Semaphore(backfillLlmCalls));
+    }
+
+    @KafkaListener(topics = "${kafka.topic.name}", groupId = "activity-processor-group",
+            concurrency = "${kafka.consumer.live.concurrency:3}", clientIdPrefix = "ai-live")
+    public void processLive(List<ConsumerRecord<String, ActivityEvent>> records) {
+        process(RecommendationLane.LIVE, records);
+    }
+
+    // Smaller polls keep a batch well inside max.poll.interval.ms with the lane's fewer LLM permits
+    @KafkaListener(topics = "${kafka.topic.backfill}", groupId = "activity-backfill-group",
+            concurrency = "${kafka.consumer.backfill.concurrency:1}", clientIdPrefix = "ai-backfill",
+            properties = "max.poll.records=${kafka.consumer.backfill.max-poll-records:20}")
+    public void processBackfill(List<ConsumerRecord<String, ActivityEvent>> records) {
+        process(RecommendationLane.BACKFILL, records);
+    }
+
+    void process(RecommendationLane lane, List<ConsumerRecord<String, ActivityEvent>> records) {
+        log.info("Received {} {} activities", records.size(), lane.tag());
+        List<ConsumerRecord<String, ActivityEvent>> activities = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, ActivityEvent> record : records) {
+            if (record.value() == null) {
+                deadLetter(lane, record);
+            } else {
+                activities.add(record);
+            }
+        }
+        laneMetrics.batchReceived(lane, activities.stream().map(ConsumerRecord::value).toList());
 
-    @KafkaListener(topics = "${kafka.topic.name}", groupId = "activity-processor-group")
-    public void processActivity(Activity activity) {
-        log.info("Received activity: {}", activity.getUserId()); //log userId of the activity
-        Recommendation recommendation = activityAIService.generateRecommendation(activity);
-        recommendationRepository.save(recommendation);
+        Semaphore permits = llmPermits.get(lane);
+        List<Future<Recommendation>> pending = new ArrayList<>(activities.size());
+        for (ConsumerRecord<String, ActivityEvent> record : activities) {
+            pending.add(executor.submit(() -> generateRecommendation(permits, record.value())));
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>(activities.size());
+        List<CompletableFuture<?>> retries = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                recommendations.add(pending.get(i).get());
+            } catch (ExecutionException e) {
+                ConsumerRecord<String, ActivityEvent> record = activities.get(i);
+                log.warn("Failed to generate recommendation for activity {}, scheduling a retry: {}",
+                        record.value().getId(), e.getCause().getMessage());
+                retries.add(retry(lane, record));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while generating recommendations", e);
+            }
+        }
+
+        if (!recommendations.isEmpty()) {
+            recommendationRepository.insert(recommendations);
+        }
+        // Offsets are only committed once every failed event is safely on the retry topic
+        CompletableFuture.allOf(retries.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private Recommendation generateRecommendation(Semaphore permits, ActivityEvent activity) throws InterruptedException {
+        permits.acquire();
+        try {
+            return activityAIService.generateRecommendation(activity);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private CompletableFuture<?> retry(RecommendationLane lane, ConsumerRecord<String, ActivityEvent> record) {
+        ProducerRecord<String, Object> retry = new ProducerRecord<>(retryTopic, record.key(), record.value());
+        lane.writeTo(retry.headers());
+        return kafkaTemplate.send(retry);
+    }
+
+    private void deadLetter(RecommendationLane lane, ConsumerRecord<String, ActivityEvent> record) {
+        DeserializationException cause = SerializationUtils.getExceptionFromHeader(
+                record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+        log.error("Dead-lettering undecodable record at {}-{}@{}: {}", record.topic(), record.partition(),
+                record.offset(), cause == null ? "no value" : cause.getMessage());
+        deadLetters.accept(record, null,
+                cause != null ? cause : new SerializationException("Activity event without a value"));
+        laneMetrics.poisoned(lane);
+    }
 
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
     }
 }
@@ -0,0 +1,100 @@
+package com.arpon007.fitness.aiservice.service;
+
+import java.io.IOException;
+
+import org.springframework.stereotype.Component;
+
+import com.arpon007.fitness.aiservice.model.GeminiAnalysis;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Extracts the analysis from a Gemini generateContent response. The envelope is walked
+ * with a streaming parser straight to {@code candidates[0].content.parts[0].text}, so no
+ * tree is built for it, and the embedded JSON is bound directly into
+ * {@link GeminiAnalysis} by a reader created once and shared across threads.
+ */
+@Component
+public class GeminiResponseParser {
+    private static final String FENCE = "```";
+
+    private final JsonFactory jsonFactory;
+    private final ObjectReader analysisReader;
+
+    public GeminiResponseParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.analysisReader = objectMapper.readerFor(GeminiAnalysis.class);
+    }
+
+    public GeminiAnalysis parse(String aiResponse) throws IOException {
+        String text = extractText(aiResponse);
+        if (text == null) {
+            throw new IOException("Gemini response has no candidate text");
+        }
+        return analysisReader.readValue(stripFences(text));
+    }
+
+    String extractText(String aiResponse) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(aiResponse)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT
+                    || !seekField(parser, "candidates") || !enterFirstElement(parser)
+                    || !seekField(parser, "content") || parser.nextToken() != JsonToken.START_OBJECT
+                    || !seekField(parser, "parts") || !enterFirstElement(parser)
+                    || !seekField(parser, "text")) {
+                return null;
+            }
+            return parser.nextToken() == JsonToken.VALUE_STRING ? parser.getText() : null;
+        }
+    }
+
+    /**
+     * Removes a surrounding markdown code fence, with or without a language tag.
+     */
+    static String stripFences(String text) {
+        int start = skipWhitespace(text, 0);
+        int end = trimWhitespace(text, start, text.length());
+        if (text.startsWith(FENCE, start)) {
+            int lineEnd = text.indexOf('\n', start);
+            start = lineEnd < 0 || lineEnd >= end ? end : lineEnd + 1;
+            if (end - start >= FENCE.length() && text.startsWith(FENCE, end - FENCE.length())) {
+                end -= FENCE.length();
+            }
+            start = skipWhitespace(text, start);
+            end = trimWhitespace(text, start, end);
+        }
+        return text.substring(start, end);
+    }
+
+    private static int skipWhitespace(String text, int start) {
+        while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimWhitespace(String text, int start, int end) {
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    // Leaves the parser on the name of the requested field of the current object
+    private static boolean seekField(JsonParser parser, String name) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (name.equals(parser.currentName())) {
+                return true;
+            }
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static boolean enterFirstElement(JsonParser parser) throws IOException {
+        return parser.nextToken() == JsonToken.START_ARRAY && parser.nextToken() == JsonToken.START_OBJECT;
+    }
+}
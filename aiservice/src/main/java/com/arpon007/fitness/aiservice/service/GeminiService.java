@@ -1,25 +1,67 @@
 package com.arpon007.fitness.aiservice.service;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
-import java.util.Map;
+import com.arpon007.fitness.commons.resilience.ResilientCalls;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.handler.timeout.ReadTimeoutException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 @Service
 public class GeminiService {
-    private final WebClient webClient;
+    private static final String GEMINI = "gemini";
 
-    @Value("${gemini.api.url}")
-    private String geminiApiUrl;
-    @Value("${gemini.api.key}")
-    private String geminiApiKey;
+    private final WebClient webClient;
+    private final ResilientCalls resilientCalls;
+    private final MeterRegistry meterRegistry;
+    private final String geminiApiUrl;
+    private final String geminiApiKey;
+    private final int maxRetries;
+    private final Duration retryBackoff;
 
-    public GeminiService(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.build();
+    public GeminiService(@Qualifier("geminiWebClient") WebClient webClient,
+                         ResilientCalls resilientCalls,
+                         MeterRegistry meterRegistry,
+                         @Value("${gemini.api.url}") String geminiApiUrl,
+                         @Value("${gemini.api.key}") String geminiApiKey,
+                         @Value("${gemini.client.max-retries:3}") int maxRetries,
+                         @Value("${gemini.client.retry-backoff:500ms}") Duration retryBackoff) {
+        this.webClient = webClient;
+        this.resilientCalls = resilientCalls;
+        this.meterRegistry = meterRegistry;
+        this.geminiApiUrl = geminiApiUrl;
+        this.geminiApiKey = geminiApiKey;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
     }
 
     public String getAnswer(String question) {
+        return generate(question).block();
+    }
+
+    /**
+     * Sends the prompt to Gemini. 429 and 5xx responses are retried with jittered
+     * exponential backoff; the call as a whole, retries included, goes through the
+     * {@code gemini} bulkhead, time limiter and circuit breaker. Its latency is recorded
+     * in {@code gemini.requests} tagged with its outcome.
+     */
+    public Mono<String> generate(String question) {
         Map<String, Object> requestBody = Map.of(
                 "contents", new Object[]{
                         Map.of("parts", new Object[]{
@@ -28,12 +70,52 @@ public class GeminiService {
                 }
         );
 
-        return webClient.post()
-                .uri(geminiApiUrl + "?key=" + geminiApiKey)
-                .header("Content-Type", "application/json")
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Mono<String> call = webClient.post()
+                    .uri(geminiApiUrl + "?key=" + geminiApiKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .retryWhen(Retry.backoff(maxRetries, retryBackoff)
+                            .jitter(0.5)
+                            .filter(GeminiService::isRetryable)
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+            return resilientCalls.call(GEMINI, call)
+                    .doOnSuccess(answer -> sample.stop(timer("success")))
+                    .doOnError(e -> sample.stop(timer(outcome(e))));
+        });
+    }
+
+    private Timer timer(String outcome) {
+        return Timer.builder("gemini.requests")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    static boolean isRetryable(Throwable e) {
+        return e instanceof WebClientResponseException response
+                && (response.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS || response.getStatusCode().is5xxServerError());
+    }
+
+    private static String outcome(Throwable e) {
+        if (e instanceof CallNotPermittedException) {
+            return "circuit_open";
+        }
+        if (e instanceof BulkheadFullException) {
+            return "bulkhead_full";
+        }
+        if (e instanceof WebClientResponseException response) {
+            if (response.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                return "rate_limited";
+            }
+            return response.getStatusCode().is5xxServerError() ? "server_error" : "client_error";
+        }
+        if (e instanceof TimeoutException || e.getCause() instanceof ReadTimeoutException) {
+            return "timeout";
+        }
+        return e instanceof WebClientRequestException ? "connection_error" : "error";
     }
 }
@@ -0,0 +1,112 @@
+package com.arpon007.fitness.aiservice.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import com.arpon007.fitness.aiservice.model.CachedRecommendation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Two-tier cache of LLM output keyed by {@link RecommendationFingerprint}: a bounded
+ * in-memory LRU in front of the {@code recommendation_cache} collection, whose entries
+ * expire through a TTL index. Store failures are logged and treated as misses.
+ */
+@Component
+@Slf4j
+public class RecommendationCache {
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, CachedRecommendation> memory;
+    private final Duration storeTtl;
+    private final Counter memoryHits;
+    private final Counter storeHits;
+    private final Counter misses;
+
+    public RecommendationCache(MongoTemplate mongoTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${recommendation.cache.max-size:10000}") long maxSize,
+                               @Value("${recommendation.cache.memory-ttl:1h}") Duration memoryTtl,
+                               @Value("${recommendation.cache.store-ttl:7d}") Duration storeTtl) {
+        this.mongoTemplate = mongoTemplate;
+        this.storeTtl = storeTtl;
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(memoryTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "recommendation");
+        this.memoryHits = lookups(meterRegistry, "memory_hit");
+        this.storeHits = lookups(meterRegistry, "store_hit");
+        this.misses = lookups(meterRegistry, "miss");
+        Gauge.builder("recommendation.cache.hit.ratio", this, RecommendationCache::hitRatio)
+                .description("Share of recommendations served without calling the LLM")
+                .register(meterRegistry);
+    }
+
+    public CachedRecommendation get(String fingerprint) {
+        CachedRecommendation cached = memory.getIfPresent(fingerprint);
+        if (cached != null) {
+            memoryHits.increment();
+            return cached;
+        }
+        try {
+            cached = mongoTemplate.findById(fingerprint, CachedRecommendation.class);
+        } catch (DataAccessException e) {
+            log.warn("Recommendation cache lookup failed: {}", e.getMessage());
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        storeHits.increment();
+        memory.put(fingerprint, cached);
+        return cached;
+    }
+
+    public void put(CachedRecommendation recommendation) {
+        memory.put(recommendation.getFingerprint(), recommendation);
+        try {
+            mongoTemplate.save(recommendation);
+        } catch (DataAccessException e) {
+            log.warn("Recommendation cache write failed: {}", e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        try {
+            mongoTemplate.indexOps(CachedRecommendation.class).createIndex(new Index()
+                    .on("createdAt", Sort.Direction.ASC)
+                    .expire(storeTtl.toSeconds(), TimeUnit.SECONDS));
+        } catch (DataAccessException e) {
+            log.warn("Could not create recommendation cache index: {}", e.getMessage());
+        }
+    }
+
+    private double hitRatio() {
+        double hits = memoryHits.count() + storeHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("recommendation.cache.lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,81 @@
+package com.arpon007.fitness.aiservice.service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.arpon007.fitness.events.ActivityEventMetrics;
+import com.arpon007.fitness.events.avro.ActivityEvent;
+
+/**
+ * Reduces the prompt inputs of an activity to a stable hash. Duration and calories are
+ * bucketed, metric keys are sorted, numbers are rounded to two significant digits and
+ * strings are lower-cased, so activities that would get the same advice share a key.
+ */
+final class RecommendationFingerprint {
+    private static final MathContext METRIC_PRECISION = new MathContext(2);
+
+    private RecommendationFingerprint() {
+    }
+
+    static String of(ActivityEvent activity, int durationBucket, int caloriesBucket) {
+        StringBuilder canonical = new StringBuilder()
+                .append(activity.getType()).append('|')
+                .append(bucket(activity.getDuration(), durationBucket)).append('|')
+                .append(bucket(activity.getCaloriesBurned(), caloriesBucket)).append('|');
+        Map<String, Object> metrics = ActivityEventMetrics.asMap(activity.getMetrics());
+        appendCanonical(canonical, metrics == null ? Map.of() : metrics);
+        return sha256(canonical.toString());
+    }
+
+    private static String bucket(Integer value, int size) {
+        return value == null ? "-" : Integer.toString(Math.floorDiv(value, size));
+    }
+
+    private static void appendCanonical(StringBuilder out, Object value) {
+        if (value instanceof Map<?, ?> map) {
+            if (map.isEmpty()) {
+                out.append("{}");
+                return;
+            }
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((key, entry) -> sorted.put(String.valueOf(key).trim().toLowerCase(Locale.ROOT), entry));
+            out.append('{');
+            sorted.forEach((key, entry) -> {
+                out.append(key).append('=');
+                appendCanonical(out, entry);
+                out.append(',');
+            });
+            out.append('}');
+        } else if (value instanceof List<?> list) {
+            out.append('[');
+            list.forEach(entry -> {
+                appendCanonical(out, entry);
+                out.append(',');
+            });
+            out.append(']');
+        } else if (value instanceof Number number && Double.isFinite(number.doubleValue())) {
+            out.append(new BigDecimal(number.toString()).round(METRIC_PRECISION).stripTrailingZeros().toPlainString());
+        } else if (value == null) {
+            out.append("null");
+        } else {
+            out.append(value.toString().trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
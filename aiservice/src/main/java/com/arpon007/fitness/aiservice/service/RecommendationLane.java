@@ -0,0 +1,42 @@
+package com.arpon007.fitness.aiservice.service;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * The topic an activity arrived on. Each lane has its own consumers and LLM permits, so
+ * a backlog of imported history never holds up workouts that just finished. Retried
+ * events carry their lane in {@link #HEADER} so their metrics stay attributed to it.
+ */
+public enum RecommendationLane {
+    LIVE("live"),
+    BACKFILL("backfill");
+
+    public static final String HEADER = "x-recommendation-lane";
+
+    private final String tag;
+
+    RecommendationLane(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    public void writeTo(Headers headers) {
+        headers.remove(HEADER);
+        headers.add(HEADER, tag.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Events without the header were retried before lanes existed; they came from the live topic
+    public static RecommendationLane readFrom(Headers headers) {
+        Header header = headers.lastHeader(HEADER);
+        if (header != null && BACKFILL.tag.equals(new String(header.value(), StandardCharsets.UTF_8))) {
+            return BACKFILL;
+        }
+        return LIVE;
+    }
+}
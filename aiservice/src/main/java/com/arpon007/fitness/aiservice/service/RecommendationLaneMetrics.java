@@ -0,0 +1,84 @@
+package com.arpon007.fitness.aiservice.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.arpon007.fitness.events.avro.ActivityEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-lane meters for recommendation generation. {@code recommendation.lane.lag} is how
+ * long ago the oldest activity in the lane's latest batch was recorded, which is what a
+ * user waits on; offset lag per consumer is published alongside as
+ * {@code kafka.consumer.fetch.manager.records.lag.max}, tagged with the lane's client id.
+ */
+@Component
+public class RecommendationLaneMetrics {
+    private final Map<RecommendationLane, AtomicLong> lagMillis = new EnumMap<>(RecommendationLane.class);
+    private final Map<RecommendationLane, Counter> retries = new EnumMap<>(RecommendationLane.class);
+    private final Map<RecommendationLane, Counter> poison = new EnumMap<>(RecommendationLane.class);
+    private final Map<RecommendationLane, Counter> exhausted = new EnumMap<>(RecommendationLane.class);
+
+    public RecommendationLaneMetrics(MeterRegistry meterRegistry) {
+        for (RecommendationLane lane : RecommendationLane.values()) {
+            AtomicLong lag = new AtomicLong();
+            lagMillis.put(lane, lag);
+            Gauge.builder("recommendation.lane.lag", lag, value -> value.get() / 1000.0)
+                    .description("Time since the oldest activity of the lane's latest batch was recorded")
+                    .baseUnit("seconds")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+            retries.put(lane, Counter.builder("recommendation.retries")
+                    .description("Recommendation attempts made from the retry topics")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry));
+            poison.put(lane, deadLetters(meterRegistry, lane, "poison"));
+            exhausted.put(lane, deadLetters(meterRegistry, lane, "exhausted"));
+        }
+    }
+
+    private static Counter deadLetters(MeterRegistry meterRegistry, RecommendationLane lane, String reason) {
+        return Counter.builder("recommendation.dead_letters")
+                .description("Activity events sent to a dead-letter topic")
+                .tag("lane", lane.tag())
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    // Uses recordedAt, a UTC instant: createdAt is in ActivityService's time zone, not ours.
+    // Events from producers on schema id 1 carry no recordedAt and are left out
+    public void batchReceived(RecommendationLane lane, Collection<ActivityEvent> activities) {
+        Instant oldest = null;
+        for (ActivityEvent activity : activities) {
+            Instant recordedAt = activity.getRecordedAt();
+            if (recordedAt != null && (oldest == null || recordedAt.isBefore(oldest))) {
+                oldest = recordedAt;
+            }
+        }
+        lagMillis.get(lane).set(oldest == null ? 0
+                : Math.max(0, Duration.between(oldest, Instant.now()).toMillis()));
+    }
+
+    public void retried(RecommendationLane lane) {
+        retries.get(lane).increment();
+    }
+
+    /** An event that could not be decoded was moved to the dead-letter topic. */
+    public void poisoned(RecommendationLane lane) {
+        poison.get(lane).increment();
+    }
+
+    /** An event failed on every retry topic and landed on the retry dead-letter topic. */
+    public void exhausted(RecommendationLane lane) {
+        exhausted.get(lane).increment();
+    }
+}
@@ -0,0 +1,56 @@
+package com.arpon007.fitness.aiservice.service;
+
+import com.arpon007.fitness.aiservice.repo.RecommendationRepository;
+import com.arpon007.fitness.events.avro.ActivityEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.DltHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retries recommendations that failed in a lane. The first attempt runs as soon as the event
+ * reaches {@code kafka.topic.retry}; after that each failure moves it to the next
+ * {@code -backoff-N} topic, whose consumer holds it back for an exponentially growing delay.
+ * Events that fail every attempt end up on the {@code -dlt} topic.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationRetryListener {
+    private final ActivityAIService activityAIService;
+    private final RecommendationRepository recommendationRepository;
+    private final RecommendationLaneMetrics laneMetrics;
+
+    @RetryableTopic(
+            attempts = "${recommendation.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${recommendation.retry.initial-delay:5000}",
+                    multiplierExpression = "${recommendation.retry.multiplier:3}",
+                    maxDelayExpression = "${recommendation.retry.max-delay:120000}"),
+            kafkaTemplate = "recommendationKafkaTemplate",
+            retryTopicSuffix = "-backoff",
+            dltTopicSuffix = "-dlt",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            numPartitions = "${kafka.topic.retry-partitions:1}")
+    @KafkaListener(topics = "${kafka.topic.retry}", groupId = "activity-retry-group",
+            containerFactory = "retryListenerContainerFactory", clientIdPrefix = "ai-retry")
+    public void retry(ConsumerRecord<String, ActivityEvent> record) {
+        laneMetrics.retried(RecommendationLane.readFrom(record.headers()));
+        recommendationRepository.insert(activityAIService.generateRecommendation(record.value()));
+    }
+
+    @DltHandler
+    public void exhausted(ConsumerRecord<String, ActivityEvent> record,
+                          @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String error) {
+        laneMetrics.exhausted(RecommendationLane.readFrom(record.headers()));
+        log.error("Giving up on recommendation for activity {}: {}",
+                record.value() == null ? null : record.value().getId(), error);
+    }
+}
@@ -0,0 +1,106 @@
+package com.arpon007.fitness.aiservice.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.arpon007.fitness.aiservice.model.GeminiAnalysis;
+import com.arpon007.fitness.aiservice.service.GeminiResponseParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the previous tree-based parsing of Gemini responses with {@link GeminiResponseParser},
+ * reporting throughput and, through the GC profiler, bytes allocated per operation. Run
+ * {@link #main} from the aiservice test classpath after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeminiResponseParsingBenchmark {
+    private String response;
+    private GeminiResponseParser parser;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String analysis = "```json\n" + mapper.writeValueAsString(mapper.readTree("""
+                {
+                  "analysis": {
+                    "overall": "A steady 45 minute run with consistent effort throughout the session.",
+                    "pace": "Average pace of 5:30 min/km is appropriate for an aerobic base run.",
+                    "heartRate": "Heart rate stayed mostly in zone 2 with short spikes on climbs.",
+                    "caloriesBurned": "450 kcal is in line with the duration and intensity."
+                  },
+                  "improvements": [
+                    {"area": "Cadence", "recommendation": "Aim for 170-180 steps per minute to reduce impact."},
+                    {"area": "Hills", "recommendation": "Keep effort, not pace, constant on climbs."},
+                    {"area": "Recovery", "recommendation": "Add an easy day after sessions of this length."}
+                  ],
+                  "suggestions": [
+                    {"workout": "Intervals", "description": "6 x 400m at 5k pace with 90s jog recovery."},
+                    {"workout": "Long run", "description": "Extend the weekend run by 10 minutes."}
+                  ],
+                  "safety": ["Warm up for 10 minutes", "Stay hydrated", "Stop if you feel chest pain"]
+                }
+                """)) + "\n```";
+        response = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":" + mapper.writeValueAsString(analysis)
+                + "}],\"role\":\"model\"},\"finishReason\":\"STOP\",\"index\":0}],"
+                + "\"usageMetadata\":{\"promptTokenCount\":312,\"candidatesTokenCount\":256,\"totalTokenCount\":568},"
+                + "\"modelVersion\":\"gemini-2.0-flash\"}";
+        parser = new GeminiResponseParser(new ObjectMapper());
+    }
+
+    @Benchmark
+    public List<String> treeParsing() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode rootNode = mapper.readTree(response);
+        String jsonContent = rootNode.path("candidates").get(0).path("content").path("parts").get(0).path("text")
+                .asText()
+                .replaceAll("```json\\n", "")
+                .replaceAll("\\n```", "")
+                .trim();
+        JsonNode analysisJson = mapper.readTree(jsonContent);
+        List<String> improvements = new ArrayList<>();
+        analysisJson.path("improvements").forEach(improvement -> improvements.add(String.format("%s: %s",
+                improvement.path("area").asText(), improvement.path("recommendation").asText())));
+        analysisJson.path("suggestions").forEach(suggestion -> improvements.add(String.format("%s: %s",
+                suggestion.path("workout").asText(), suggestion.path("description").asText())));
+        return improvements;
+    }
+
+    @Benchmark
+    public List<String> streamingParser() throws Exception {
+        GeminiAnalysis analysis = parser.parse(response);
+        List<String> improvements = new ArrayList<>();
+        analysis.getImprovements().forEach(improvement ->
+                improvements.add(improvement.getArea() + ": " + improvement.getRecommendation()));
+        analysis.getSuggestions().forEach(suggestion ->
+                improvements.add(suggestion.getWorkout() + ": " + suggestion.getDescription()));
+        return improvements;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GeminiResponseParsingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,111 @@
+package com.arpon007.fitness.aiservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import com.arpon007.fitness.aiservice.model.Recommendation;
+import com.arpon007.fitness.aiservice.repo.RecommendationRepository;
+import com.arpon007.fitness.events.avro.ActivityEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ActivityMessageListenerTest {
+    private static final String RETRY_TOPIC = "activity-events-retry";
+
+    private final ActivityAIService activityAIService = mock(ActivityAIService.class);
+    private final RecommendationRepository repository = mock(RecommendationRepository.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final DeadLetterPublishingRecoverer deadLetters = mock(DeadLetterPublishingRecoverer.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ActivityMessageListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new ActivityMessageListener(activityAIService, repository, kafkaTemplate, deadLetters,
+                new RecommendationLaneMetrics(meterRegistry), RETRY_TOPIC, 2, 1);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void failedRecommendationsGoToTheRetryTopicTaggedWithTheirLane() {
+        ActivityEvent ok = event("a1");
+        ActivityEvent failing = event("a2");
+        Recommendation recommendation = Recommendation.builder().activityId("a1").build();
+        when(activityAIService.generateRecommendation(ok)).thenReturn(recommendation);
+        when(activityAIService.generateRecommendation(failing)).thenThrow(new IllegalStateException("unparseable"));
+
+        listener.processBackfill(List.of(record("activity-events-backfill", 0, ok),
+                record("activity-events-backfill", 1, failing)));
+
+        verify(repository).insert(List.of(recommendation));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<ProducerRecord<String, Object>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        assertThat(sent.getValue().topic()).isEqualTo(RETRY_TOPIC);
+        assertThat(sent.getValue().key()).isEqualTo("u1");
+        assertThat(sent.getValue().value()).isSameAs(failing);
+        assertThat(RecommendationLane.readFrom(sent.getValue().headers())).isEqualTo(RecommendationLane.BACKFILL);
+    }
+
+    @Test
+    void undecodableRecordsAreDeadLetteredWithoutHoldingUpTheBatch() {
+        ActivityEvent ok = event("a1");
+        Recommendation recommendation = Recommendation.builder().activityId("a1").build();
+        when(activityAIService.generateRecommendation(ok)).thenReturn(recommendation);
+        ConsumerRecord<String, ActivityEvent> poison = record("activity-events", 0, null);
+
+        listener.processLive(List.of(poison, record("activity-events", 1, ok)));
+
+        verify(deadLetters).accept(eq(poison), isNull(), argThat(e -> e != null));
+        verify(repository).insert(List.of(recommendation));
+        assertThat(meterRegistry.get("recommendation.dead_letters")
+                .tags("lane", "live", "reason", "poison").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void laneLagIsMeasuredFromTheUtcRecordedAtRatherThanTheProducersLocalTime() {
+        // Recorded 30 s ago by an ActivityService whose clock reads five hours ahead of ours
+        ActivityEvent event = ActivityEvent.newBuilder(event("a1"))
+                .setCreatedAt(LocalDateTime.now().plusHours(5).minusSeconds(30))
+                .setRecordedAt(Instant.now().minusSeconds(30))
+                .build();
+        when(activityAIService.generateRecommendation(event)).thenReturn(Recommendation.builder().activityId("a1").build());
+
+        listener.processLive(List.of(record("activity-events", 0, event)));
+
+        assertThat(meterRegistry.get("recommendation.lane.lag").tag("lane", "live").gauge().value())
+                .isBetween(30.0, 60.0);
+    }
+
+    private static ActivityEvent event(String id) {
+        return ActivityEvent.newBuilder()
+                .setId(id)
+                .setUserId("u1")
+                .setCreatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static ConsumerRecord<String, ActivityEvent> record(String topic, long offset, ActivityEvent value) {
+        return new ConsumerRecord<>(topic, 0, offset, "u1", value);
+    }
+}
@@ -0,0 +1,49 @@
+package com.arpon007.fitness.aiservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import com.arpon007.fitness.aiservice.model.GeminiAnalysis;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class GeminiResponseParserTest {
+    private final GeminiResponseParser parser = new GeminiResponseParser(new ObjectMapper());
+
+    @Test
+    void parsesFencedAnalysisFromFirstCandidate() throws IOException {
+        String analysis = "```json\n{\"analysis\":{\"overall\":\"Solid\",\"pace\":\"Even\"},"
+                + "\"improvements\":[{\"area\":\"Cadence\",\"recommendation\":\"Shorter steps\"}],"
+                + "\"suggestions\":[{\"workout\":\"Intervals\",\"description\":\"6x400m\"}],"
+                + "\"safety\":[\"Hydrate\"],\"extra\":1}\n```";
+        String response = "{\"usageMetadata\":{\"totalTokenCount\":10},\"candidates\":[{\"finishReason\":\"STOP\","
+                + "\"content\":{\"role\":\"model\",\"parts\":[{\"text\":" + new ObjectMapper().writeValueAsString(analysis)
+                + "}]}},{\"content\":{\"parts\":[{\"text\":\"ignored\"}]}}]}";
+
+        GeminiAnalysis result = parser.parse(response);
+
+        assertEquals("Solid", result.getAnalysis().getOverall());
+        assertEquals("Even", result.getAnalysis().getPace());
+        assertNull(result.getAnalysis().getHeartRate());
+        assertEquals("Cadence", result.getImprovements().get(0).getArea());
+        assertEquals("6x400m", result.getSuggestions().get(0).getDescription());
+        assertEquals("Hydrate", result.getSafety().get(0));
+    }
+
+    @Test
+    void rejectsResponsesWithoutCandidateText() {
+        assertThrows(IOException.class, () -> parser.parse("{\"candidates\":[]}"));
+        assertThrows(IOException.class, () -> parser.parse("{\"promptFeedback\":{\"blockReason\":\"SAFETY\"}}"));
+    }
+
+    @Test
+    void stripsFencesWithoutLanguageTagOrSurroundingWhitespace() {
+        assertEquals("{}", GeminiResponseParser.stripFences("  ```\n{}\n```  "));
+        assertEquals("{}", GeminiResponseParser.stripFences("```json\n{}```"));
+        assertEquals("{\"a\":1}", GeminiResponseParser.stripFences("\n{\"a\":1}\n"));
+    }
+}
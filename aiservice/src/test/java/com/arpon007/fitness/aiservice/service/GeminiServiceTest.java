@@ -0,0 +1,142 @@
+package com.arpon007.fitness.aiservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.arpon007.fitness.aiservice.config.GeminiClientConfig;
+import com.arpon007.fitness.commons.resilience.ResilienceConfig;
+import com.arpon007.fitness.commons.resilience.ResilientCalls;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.test.StepVerifier;
+
+class GeminiServiceTest {
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private GeminiService geminiService;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+        WebClient webClient = new GeminiClientConfig().geminiWebClient(WebClient.builder(),
+                Duration.ofSeconds(1), Duration.ofMillis(300), 4, 16, Duration.ofSeconds(1), Duration.ofSeconds(5));
+        ResilientCalls resilientCalls = new ResilientCalls(
+                CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                        .slidingWindowSize(2)
+                        .minimumNumberOfCalls(2)
+                        .waitDurationInOpenState(Duration.ofMinutes(1))
+                        .recordException(new ResilienceConfig.DownstreamFailure())
+                        .build()),
+                BulkheadRegistry.ofDefaults(),
+                TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(5)).build()));
+        geminiService = new GeminiService(webClient, resilientCalls, meterRegistry,
+                "http://localhost:" + server.getAddress().getPort() + "/generate", "test-key",
+                3, Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void retriesServerErrorsAndRateLimitsUntilSuccess() {
+        server.createContext("/generate", exchange -> {
+            int call = calls.incrementAndGet();
+            respond(exchange, call == 1 ? 503 : call == 2 ? 429 : 200, "{\"ok\":true}");
+        });
+
+        StepVerifier.create(geminiService.generate("hello"))
+                .expectNext("{\"ok\":true}")
+                .verifyComplete();
+
+        assertEquals(3, calls.get());
+        assertEquals(1, meterRegistry.get("gemini.requests").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        server.createContext("/generate", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, 400, "{}");
+        });
+
+        StepVerifier.create(geminiService.generate("hello"))
+                .expectError(WebClientResponseException.BadRequest.class)
+                .verify();
+
+        assertEquals(1, calls.get());
+        assertEquals(1, meterRegistry.get("gemini.requests").tag("outcome", "client_error").timer().count());
+    }
+
+    @Test
+    void shortCircuitsOnceTheBreakerOpens() {
+        server.createContext("/generate", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, 500, "{}");
+        });
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(geminiService.generate("hello"))
+                    .expectError(WebClientResponseException.InternalServerError.class)
+                    .verify();
+        }
+        StepVerifier.create(geminiService.generate("hello"))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+
+        // Two calls of four attempts each, then nothing reaches the server
+        assertEquals(8, calls.get());
+        assertEquals(1, meterRegistry.get("gemini.requests").tag("outcome", "circuit_open").timer().count());
+    }
+
+    @Test
+    void failsWhenTheResponseIsSlowerThanTheReadTimeout() {
+        server.createContext("/generate", exchange -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{}");
+        });
+
+        StepVerifier.create(geminiService.generate("hello"))
+                .expectError()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1, meterRegistry.get("gemini.requests").tag("outcome", "timeout").timer().count());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
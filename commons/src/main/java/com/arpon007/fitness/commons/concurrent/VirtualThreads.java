@@ -0,0 +1,32 @@
+package com.arpon007.fitness.commons.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Virtual-thread executors for the places Spring Boot's {@code spring.threads.virtual.enabled}
+ * does not reach, such as Kafka listener container factories a service declares itself.
+ */
+public final class VirtualThreads {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * An executor for Kafka consumer threads, one virtual thread per consumer. Warns on JDKs
+     * before 24, where the consumer pins its carrier thread while it waits on the coordinator.
+     */
+    public static SimpleAsyncTaskExecutor kafkaListenerExecutor(String threadNamePrefix) {
+        if (Runtime.version().feature() < 24) {
+            // JEP 491 only lands in JDK 24; until then the consumer's group coordinator blocks
+            // on the network inside synchronized methods and pins its carrier while it does
+            log.warn("Kafka consumers run on virtual threads on JDK {}; coordinator lookups and rebalances will pin carrier threads",
+                    Runtime.version().feature());
+        }
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
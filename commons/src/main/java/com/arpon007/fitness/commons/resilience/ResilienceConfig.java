@@ -0,0 +1,96 @@
+package com.arpon007.fitness.commons.resilience;
+
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * {@link ResilientCalls} for every service that has this module on its classpath, plus metrics
+ * for circuit breaker state transitions and bulkhead rejections on top of the gauges and call
+ * counters resilience4j already exports through Micrometer.
+ */
+@AutoConfiguration
+public class ResilienceConfig {
+    private static final Logger log = LoggerFactory.getLogger(ResilienceConfig.class);
+
+    @Bean
+    public ResilientCalls resilientCalls(CircuitBreakerRegistry circuitBreakerRegistry,
+                                         BulkheadRegistry bulkheadRegistry,
+                                         TimeLimiterRegistry timeLimiterRegistry) {
+        return new ResilientCalls(circuitBreakerRegistry, bulkheadRegistry, timeLimiterRegistry);
+    }
+
+    @Bean
+    public RegistryEventConsumer<CircuitBreaker> circuitBreakerTransitionMetrics(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<CircuitBreaker> event) {
+                CircuitBreaker circuitBreaker = event.getAddedEntry();
+                circuitBreaker.getEventPublisher().onStateTransition(transition -> {
+                    log.warn("Circuit breaker {} moved {}", circuitBreaker.getName(), transition.getStateTransition());
+                    meterRegistry.counter("resilience4j.circuitbreaker.transitions",
+                            "name", circuitBreaker.getName(),
+                            "from", transition.getStateTransition().getFromState().name(),
+                            "to", transition.getStateTransition().getToState().name()).increment();
+                });
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<CircuitBreaker> event) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<CircuitBreaker> event) {
+            }
+        };
+    }
+
+    @Bean
+    public RegistryEventConsumer<Bulkhead> bulkheadRejectionMetrics(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<Bulkhead> event) {
+                Bulkhead bulkhead = event.getAddedEntry();
+                bulkhead.getEventPublisher().onCallRejected(rejected ->
+                        meterRegistry.counter("resilience4j.bulkhead.rejected", "name", bulkhead.getName()).increment());
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<Bulkhead> event) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<Bulkhead> event) {
+            }
+        };
+    }
+
+    /**
+     * Referenced from {@code record-failure-predicate}: client errors are answers from a
+     * healthy downstream and must not open its breaker, except 429 which signals overload.
+     */
+    public static class DownstreamFailure implements Predicate<Throwable> {
+        @Override
+        public boolean test(Throwable e) {
+            return !(e instanceof WebClientResponseException response
+                    && response.getStatusCode().is4xxClientError()
+                    && response.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS);
+        }
+    }
+}
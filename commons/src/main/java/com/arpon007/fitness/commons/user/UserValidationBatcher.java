@@ -0,0 +1,78 @@
+package com.arpon007.fitness.commons.user;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Coalesces single-user validations into bulk lookups. The first id after a flush opens a
+ * window of {@code window}; every id requested until it closes, or until {@code maxSize}
+ * distinct ids are waiting, goes out in one {@code lookup} call. Callers asking for the
+ * same id in one window share its answer, and a failed lookup fails every caller in it.
+ */
+public class UserValidationBatcher {
+    private final Function<Set<String>, Mono<Map<String, Boolean>>> lookup;
+    private final Duration window;
+    private final int maxSize;
+
+    // Guarded by this
+    private Map<String, Sinks.One<Boolean>> pending = new HashMap<>();
+    private boolean flushScheduled;
+
+    public UserValidationBatcher(Function<Set<String>, Mono<Map<String, Boolean>>> lookup, Duration window, int maxSize) {
+        this.lookup = lookup;
+        this.window = window;
+        this.maxSize = maxSize;
+    }
+
+    public Mono<Boolean> validate(String userId) {
+        return Mono.defer(() -> {
+            Sinks.One<Boolean> result;
+            Map<String, Sinks.One<Boolean>> full = null;
+            synchronized (this) {
+                result = pending.computeIfAbsent(userId, id -> Sinks.one());
+                if (pending.size() >= maxSize) {
+                    full = takePending();
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    Schedulers.parallel().schedule(this::flushWindow, window.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+            if (full != null) {
+                send(full);
+            }
+            return result.asMono();
+        });
+    }
+
+    private void flushWindow() {
+        Map<String, Sinks.One<Boolean>> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private Map<String, Sinks.One<Boolean>> takePending() {
+        Map<String, Sinks.One<Boolean>> batch = pending;
+        pending = new HashMap<>();
+        return batch;
+    }
+
+    private void send(Map<String, Sinks.One<Boolean>> batch) {
+        lookup.apply(batch.keySet()).defaultIfEmpty(Map.of()).subscribe(
+                results -> batch.forEach((userId, result) ->
+                        result.tryEmitValue(Boolean.TRUE.equals(results.get(userId)))),
+                error -> batch.values().forEach(result -> result.tryEmitError(error)));
+    }
+}
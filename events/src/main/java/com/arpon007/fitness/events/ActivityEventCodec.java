@@ -0,0 +1,143 @@
+package com.arpon007.fitness.events;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+
+import com.arpon007.fitness.events.avro.ActivityEvent;
+
+/**
+ * Wire format of {@code activity-events}: a magic byte {@code 0}, the 4-byte id of the
+ * writer schema, then the Avro binary encoding of {@link ActivityEvent} (the framing of
+ * the Confluent serializers, so a schema registry can take over the id space later).
+ * <p>
+ * Schema ids are resolved against {@link #WRITER_SCHEMAS}: when {@code ActivityEvent.avsc}
+ * changes, bump {@link #SCHEMA_ID}, copy the previous schema to
+ * {@code schemas/ActivityEvent.<id>.avsc} and add it to that map, so events from producers
+ * that are not upgraded yet are still resolved against their own schema. Events from a
+ * newer producer carry ids this map does not know, so the serializer also sends the
+ * writer schema, in parsing canonical form, in the {@link #SCHEMA_HEADER} record header;
+ * zstd batch compression takes the repeats out again. Producers and consumers can
+ * therefore be upgraded in either order. An unknown id without that header is rejected,
+ * since reading it with another schema would misread the binary encoding.
+ * The changes a new schema may make are listed in the doc of {@code ActivityEvent.avsc}.
+ * <p>
+ * Writer and readers are built once and shared through {@link #INSTANCE}; both are
+ * thread-safe.
+ */
+public final class ActivityEventCodec {
+    public static final byte MAGIC_BYTE = 0;
+    public static final int SCHEMA_ID = 2;
+    public static final String SCHEMA_HEADER = "activity-event-schema";
+
+    private static final Map<Integer, Schema> WRITER_SCHEMAS = Map.of(
+            1, previousSchema("/schemas/ActivityEvent.1.avsc"),
+            SCHEMA_ID, ActivityEvent.getClassSchema());
+    private static final int HEADER_SIZE = 5;
+
+    public static final ActivityEventCodec INSTANCE = new ActivityEventCodec();
+
+    private final SpecificDatumWriter<ActivityEvent> writer = new SpecificDatumWriter<>(ActivityEvent.class);
+    private final byte[] schemaHeader = SchemaNormalization.toParsingForm(ActivityEvent.getClassSchema())
+            .getBytes(StandardCharsets.UTF_8);
+    private final Map<Integer, DatumReader<ActivityEvent>> readers = new ConcurrentHashMap<>();
+    // Keyed by the schema itself rather than its id, so two producers can never share a reader
+    private final Map<ByteBuffer, DatumReader<ActivityEvent>> sentSchemaReaders = new ConcurrentHashMap<>();
+
+    private ActivityEventCodec() {
+    }
+
+    public byte[] encode(ActivityEvent event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(MAGIC_BYTE);
+        out.write(SCHEMA_ID >>> 24);
+        out.write(SCHEMA_ID >>> 16);
+        out.write(SCHEMA_ID >>> 8);
+        out.write(SCHEMA_ID);
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        try {
+            writer.write(event, encoder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= HEADER_SIZE && data[0] == MAGIC_BYTE;
+    }
+
+    /**
+     * The {@link #SCHEMA_HEADER} value for events this codec encodes; shared, so not to be modified.
+     */
+    byte[] schemaHeader() {
+        return schemaHeader;
+    }
+
+    public ActivityEvent decode(byte[] data) {
+        return decode(data, null);
+    }
+
+    /**
+     * Decodes {@code data}, resolving a schema id this consumer does not know against
+     * {@code writerSchema}, the {@link #SCHEMA_HEADER} sent with it ({@code null} if none was).
+     */
+    public ActivityEvent decode(byte[] data, byte[] writerSchema) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("Not an encoded activity event");
+        }
+        int schemaId = ByteBuffer.wrap(data, 1, 4).getInt();
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, HEADER_SIZE, data.length - HEADER_SIZE, null);
+        try {
+            return reader(schemaId, writerSchema).read(null, decoder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DatumReader<ActivityEvent> reader(int schemaId, byte[] writerSchema) {
+        DatumReader<ActivityEvent> reader = readers.get(schemaId);
+        if (reader != null) {
+            return reader;
+        }
+        if (WRITER_SCHEMAS.containsKey(schemaId)) {
+            return readers.computeIfAbsent(schemaId, id -> reader(WRITER_SCHEMAS.get(id)));
+        }
+        if (writerSchema == null) {
+            throw new IllegalArgumentException("Unknown activity event schema id " + schemaId
+                    + " (known: " + WRITER_SCHEMAS.keySet() + ") and no " + SCHEMA_HEADER + " header");
+        }
+        return sentSchemaReaders.computeIfAbsent(ByteBuffer.wrap(writerSchema),
+                schema -> reader(new Schema.Parser().parse(new String(writerSchema, StandardCharsets.UTF_8))));
+    }
+
+    private static Schema previousSchema(String resource) {
+        try (InputStream in = ActivityEventCodec.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing " + resource);
+            }
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static DatumReader<ActivityEvent> reader(Schema writerSchema) {
+        return new SpecificDatumReader<>(writerSchema, ActivityEvent.getClassSchema());
+    }
+}
@@ -0,0 +1,42 @@
+package com.arpon007.fitness.events;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import com.arpon007.fitness.events.avro.ActivityEvent;
+
+/**
+ * Kafka value deserializer for {@code activity-events}. Payloads that are not in the
+ * {@link ActivityEventCodec} format are rejected rather than guessed at. Events of a newer
+ * producer are read with the writer schema sent in their {@link ActivityEventCodec#SCHEMA_HEADER}
+ * header.
+ */
+public class ActivityEventDeserializer implements Deserializer<ActivityEvent> {
+
+    @Override
+    public ActivityEvent deserialize(String topic, Headers headers, byte[] data) {
+        Header schema = headers == null ? null : headers.lastHeader(ActivityEventCodec.SCHEMA_HEADER);
+        return deserialize(topic, data, schema == null ? null : schema.value());
+    }
+
+    @Override
+    public ActivityEvent deserialize(String topic, byte[] data) {
+        return deserialize(topic, data, null);
+    }
+
+    private ActivityEvent deserialize(String topic, byte[] data, byte[] writerSchema) {
+        if (data == null) {
+            return null;
+        }
+        if (!ActivityEventCodec.isEncoded(data)) {
+            throw new SerializationException("Not an activity event on " + topic);
+        }
+        try {
+            return ActivityEventCodec.INSTANCE.decode(data, writerSchema);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Could not deserialize activity event on " + topic, e);
+        }
+    }
+}
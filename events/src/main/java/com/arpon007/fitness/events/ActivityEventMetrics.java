@@ -0,0 +1,74 @@
+package com.arpon007.fitness.events;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.arpon007.fitness.events.avro.ActivityMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Converts between {@link ActivityMetrics} and the flat metrics map clients send. The
+ * typed fields keep their client-facing keys; {@code other} holds every remaining value
+ * as JSON.
+ */
+public final class ActivityEventMetrics {
+    public static final String HEART_RATE_AVG = "heartRateAvg";
+    public static final String HEART_RATE_MAX = "heartRateMax";
+    public static final String DISTANCE = "distance";
+    public static final String PACE = "pace";
+    public static final String STEPS = "steps";
+    public static final String ELEVATION_GAIN = "elevationGain";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter VALUE_WRITER = MAPPER.writer();
+    private static final ObjectReader VALUE_READER = MAPPER.readerFor(Object.class);
+
+    private ActivityEventMetrics() {
+    }
+
+    public static Map<String, String> encodeOther(Map<String, Object> other) {
+        if (other == null || other.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<String, String> encoded = new HashMap<>(other.size() * 2);
+        try {
+            for (Map.Entry<String, Object> entry : other.entrySet()) {
+                encoded.put(entry.getKey(), VALUE_WRITER.writeValueAsString(entry.getValue()));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metric value is not serializable", e);
+        }
+        return encoded;
+    }
+
+    public static Map<String, Object> asMap(ActivityMetrics metrics) {
+        if (metrics == null) {
+            return null;
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        putIfPresent(map, HEART_RATE_AVG, metrics.getHeartRateAvg());
+        putIfPresent(map, HEART_RATE_MAX, metrics.getHeartRateMax());
+        putIfPresent(map, DISTANCE, metrics.getDistance());
+        putIfPresent(map, PACE, metrics.getPace());
+        putIfPresent(map, STEPS, metrics.getSteps());
+        putIfPresent(map, ELEVATION_GAIN, metrics.getElevationGain());
+        try {
+            for (Map.Entry<String, String> entry : metrics.getOther().entrySet()) {
+                map.put(entry.getKey(), VALUE_READER.readValue(entry.getValue()));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed metric value", e);
+        }
+        return map;
+    }
+
+    private static void putIfPresent(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.arpon007.fitness.events;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import com.arpon007.fitness.events.avro.ActivityEvent;
+
+/**
+ * Kafka value serializer for {@code activity-events}, writing the {@link ActivityEventCodec}
+ * format with the writer schema in the {@link ActivityEventCodec#SCHEMA_HEADER} header.
+ */
+public class ActivityEventSerializer implements Serializer<ActivityEvent> {
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, ActivityEvent event) {
+        if (event != null) {
+            // A republished record (retry topics) still carries the header of the original writer
+            headers.remove(ActivityEventCodec.SCHEMA_HEADER);
+            headers.add(ActivityEventCodec.SCHEMA_HEADER, ActivityEventCodec.INSTANCE.schemaHeader());
+        }
+        return serialize(topic, event);
+    }
+
+    @Override
+    public byte[] serialize(String topic, ActivityEvent event) {
+        if (event == null) {
+            return null;
+        }
+        try {
+            return ActivityEventCodec.INSTANCE.encode(event);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Could not serialize activity event " + event.getId(), e);
+        }
+    }
+}
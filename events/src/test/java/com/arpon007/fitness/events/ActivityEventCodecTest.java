@@ -0,0 +1,243 @@
+package com.arpon007.fitness.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import com.arpon007.fitness.events.avro.ActivityEvent;
+import com.arpon007.fitness.events.avro.ActivityMetrics;
+import com.arpon007.fitness.events.avro.ActivityType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+class ActivityEventCodecTest {
+    private static final String TOPIC = "activity-events";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 6, 1, 7, 30, 15, 250_000_000);
+
+    private static final int NEXT_SCHEMA_ID = ActivityEventCodec.SCHEMA_ID + 1;
+
+    private final ActivityEventSerializer serializer = new ActivityEventSerializer();
+    private final ActivityEventDeserializer deserializer = new ActivityEventDeserializer();
+
+    @Test
+    void roundTripsEventsWithMillisecondTimestamps() {
+        ActivityEvent event = ActivityEvent.newBuilder()
+                .setId("a1")
+                .setUserId("u1")
+                .setType(ActivityType.RUNNING)
+                .setDuration(45)
+                .setStartTime(START)
+                .setMetrics(ActivityMetrics.newBuilder()
+                        .setDistance(9.5)
+                        .setSteps(11800)
+                        .setOther(ActivityEventMetrics.encodeOther(Map.of("pace", "8:39", "weather", Map.of("temp", 18))))
+                        .build())
+                .build();
+
+        ActivityEvent read = deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, event));
+
+        assertEquals(event, read);
+        assertNull(read.getCaloriesBurned());
+        assertEquals(START, read.getStartTime());
+        assertEquals(Map.of("distance", 9.5, "steps", 11800, "pace", "8:39", "weather", Map.of("temp", 18)),
+                ActivityEventMetrics.asMap(read.getMetrics()));
+    }
+
+    @Test
+    void sendsTheWriterSchemaWithEachEvent() {
+        ActivityEvent event = ActivityEvent.newBuilder().setId("a5").setUserId("u5").build();
+        Headers headers = new RecordHeaders();
+
+        byte[] data = serializer.serialize(TOPIC, headers, event);
+
+        assertEquals(SchemaNormalization.toParsingForm(ActivityEvent.getClassSchema()),
+                new String(headers.lastHeader(ActivityEventCodec.SCHEMA_HEADER).value(), StandardCharsets.UTF_8));
+        assertEquals(event, deserializer.deserialize(TOPIC, headers, data));
+    }
+
+    // The evolutions the doc of ActivityEvent.avsc allows, each read by this (older) consumer
+
+    @Test
+    void readsEventsOfANewerProducerThatAddedAField() throws IOException {
+        Schema next = nextSchema(fields -> fields.addObject()
+                .put("name", "source").put("type", "string").put("default", "app"));
+        GenericRecord event = event(next, "a6");
+        event.put("source", "watch");
+
+        ActivityEvent read = readFromNewerProducer(next, event);
+
+        assertEquals("a6", read.getId());
+        assertEquals(45, read.getDuration());
+        assertEquals(300, read.getCaloriesBurned());
+    }
+
+    @Test
+    void readsEventsOfANewerProducerThatAddedAMetricsField() throws IOException {
+        Schema next = nextSchema(fields -> ((ArrayNode) unionBranch(field(fields, "metrics"), "ActivityMetrics")
+                .get("fields")).addObject().put("name", "cadence").put("type", "int").put("default", 0));
+        Schema metricsSchema = next.getField("metrics").schema().getTypes().get(1);
+        GenericRecord metrics = new GenericData.Record(metricsSchema);
+        metrics.put("distance", 9.5);
+        metrics.put("steps", 11800);
+        metrics.put("other", Map.of());
+        metrics.put("cadence", 172);
+        GenericRecord event = event(next, "a7");
+        event.put("metrics", metrics);
+
+        ActivityEvent read = readFromNewerProducer(next, event);
+
+        assertEquals(9.5, read.getMetrics().getDistance());
+        assertEquals(11800, read.getMetrics().getSteps());
+        assertEquals(300, read.getCaloriesBurned());
+    }
+
+    @Test
+    void readsEventsOfANewerProducerThatRemovedAFieldWithADefault() throws IOException {
+        Schema next = nextSchema(fields -> fields.remove(indexOf(fields, "caloriesBurned")));
+        GenericRecord event = event(next, "a8");
+
+        ActivityEvent read = readFromNewerProducer(next, event);
+
+        assertEquals("a8", read.getId());
+        assertEquals(45, read.getDuration());
+        assertNull(read.getCaloriesBurned());
+    }
+
+    @Test
+    void readsEventsOfANewerProducerThatAddedAnActivityTypeSymbol() throws IOException {
+        Schema next = nextSchema(fields -> ((ArrayNode) unionBranch(field(fields, "type"), "ActivityType")
+                .get("symbols")).add("ROWING"));
+        GenericRecord event = event(next, "a9");
+        event.put("type", new GenericData.EnumSymbol(next.getField("type").schema().getTypes().get(1), "ROWING"));
+
+        ActivityEvent read = readFromNewerProducer(next, event);
+
+        assertEquals(ActivityType.OTHER, read.getType());
+        assertEquals(45, read.getDuration());
+    }
+
+    @Test
+    void rejectsEventsWithAnUnknownSchemaId() {
+        byte[] data = serializer.serialize(TOPIC, ActivityEvent.newBuilder().setId("a2").setUserId("u2").build());
+        data[4] = 99;
+
+        // Without the writer schema in a header, nothing tells how to read it
+        SerializationException e = assertThrows(SerializationException.class,
+                () -> deserializer.deserialize(TOPIC, new RecordHeaders(), data));
+
+        assertTrue(e.getCause().getMessage().contains("schema id 99"), e.getCause().getMessage());
+    }
+
+    @Test
+    void readsEventsOfProducersStillOnSchemaOne() throws IOException {
+        Schema v1;
+        try (InputStream in = getClass().getResourceAsStream("/schemas/ActivityEvent.1.avsc")) {
+            v1 = new Schema.Parser().parse(in);
+        }
+        GenericRecord event = new GenericData.Record(v1);
+        event.put("id", "a4");
+        event.put("userId", "u4");
+        event.put("duration", 20);
+        event.put("createdAt", START.toInstant(ZoneOffset.UTC).toEpochMilli());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {ActivityEventCodec.MAGIC_BYTE, 0, 0, 0, 1});
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(v1).write(event, encoder);
+        encoder.flush();
+
+        ActivityEvent read = deserializer.deserialize(TOPIC, out.toByteArray());
+
+        assertEquals("a4", read.getId());
+        assertEquals(20, read.getDuration());
+        assertEquals(START, read.getCreatedAt());
+        assertNull(read.getRecordedAt());
+    }
+
+    @Test
+    void rejectsPayloadsInAnyOtherFormat() {
+        byte[] json = "{\"id\":\"a3\",\"userId\":\"u3\",\"startTime\":[2025,6,1,7,30,15]}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, json));
+    }
+
+    /**
+     * The current schema as a newer producer would have changed it.
+     */
+    private static Schema nextSchema(Consumer<ArrayNode> change) throws IOException {
+        ObjectNode schema = (ObjectNode) new ObjectMapper().readTree(ActivityEvent.getClassSchema().toString());
+        change.accept((ArrayNode) schema.get("fields"));
+        return new Schema.Parser().parse(schema.toString());
+    }
+
+    private static ObjectNode field(ArrayNode fields, String name) {
+        return (ObjectNode) fields.get(indexOf(fields, name));
+    }
+
+    private static int indexOf(ArrayNode fields, String name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (name.equals(fields.get(i).get("name").asText())) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No field " + name);
+    }
+
+    private static ObjectNode unionBranch(ObjectNode field, String typeName) {
+        for (JsonNode branch : field.get("type")) {
+            if (typeName.equals(branch.path("name").asText())) {
+                return (ObjectNode) branch;
+            }
+        }
+        throw new IllegalArgumentException("No " + typeName + " in " + field);
+    }
+
+    private static GenericRecord event(Schema schema, String id) {
+        GenericRecord event = new GenericData.Record(schema);
+        event.put("id", id);
+        event.put("userId", "u1");
+        event.put("duration", 45);
+        if (schema.getField("caloriesBurned") != null) {
+            event.put("caloriesBurned", 300);
+        }
+        return event;
+    }
+
+    // What the serializer of a producer on NEXT_SCHEMA_ID sends
+    private ActivityEvent readFromNewerProducer(Schema next, GenericRecord event) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {ActivityEventCodec.MAGIC_BYTE, 0, 0, 0, NEXT_SCHEMA_ID});
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(next).write(event, encoder);
+        encoder.flush();
+        Headers headers = new RecordHeaders();
+        headers.add(ActivityEventCodec.SCHEMA_HEADER,
+                SchemaNormalization.toParsingForm(next).getBytes(StandardCharsets.UTF_8));
+
+        return deserializer.deserialize(TOPIC, headers, out.toByteArray());
+    }
+}
@@ -0,0 +1,153 @@
+package com.arpon007.fitness.events.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.arpon007.fitness.events.ActivityEventDeserializer;
+import com.arpon007.fitness.events.ActivityEventMetrics;
+import com.arpon007.fitness.events.ActivityEventSerializer;
+import com.arpon007.fitness.events.avro.ActivityEvent;
+import com.arpon007.fitness.events.avro.ActivityMetrics;
+import com.arpon007.fitness.events.avro.ActivityType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Compares the JSON activity events published before the Avro contract (an
+ * {@code Activity} bean with its metrics map and array timestamps, as Spring's
+ * {@code JsonSerializer} wrote it) with {@link ActivityEventSerializer} and
+ * {@link ActivityEventDeserializer}. Payload sizes are printed during setup; run
+ * {@link #main} from the events test classpath after {@code mvn test-compile} for
+ * throughput and bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActivityEventSerializationBenchmark {
+    private static final String TOPIC = "activity-events";
+
+    private final ActivityEventSerializer avroSerializer = new ActivityEventSerializer();
+    private final ActivityEventDeserializer avroDeserializer = new ActivityEventDeserializer();
+
+    private ObjectWriter jsonWriter;
+    private ObjectReader jsonReader;
+    private JsonActivity activity;
+    private ActivityEvent event;
+    private byte[] json;
+    private byte[] avro;
+
+    /** The event payload as it was published in JSON. */
+    public static class JsonActivity {
+        public String id;
+        public String userId;
+        public ActivityType type;
+        public Integer duration;
+        public Integer caloriesBurned;
+        public LocalDateTime startTime;
+        public Map<String, Object> additionalMetrics;
+        public LocalDateTime createdAt;
+        public LocalDateTime updatedAt;
+    }
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        jsonWriter = objectMapper.writerFor(JsonActivity.class);
+        jsonReader = objectMapper.readerFor(JsonActivity.class);
+
+        LocalDateTime start = LocalDateTime.of(2025, 6, 1, 7, 30, 12);
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("heartRateAvg", 146);
+        metrics.put("heartRateMax", 178);
+        metrics.put("distance", 10.4);
+        metrics.put("pace", 5.35);
+        metrics.put("steps", 11_820);
+        metrics.put("elevationGain", 86.0);
+        metrics.put("weather", "sunny");
+        activity = new JsonActivity();
+        activity.id = "665b1f4e2a9c4e3b8d7f1a20";
+        activity.userId = "7d2f6a1e-3c54-4b8e-9f20-1a6c5e8b9d33";
+        activity.type = ActivityType.RUNNING;
+        activity.duration = 56;
+        activity.caloriesBurned = 640;
+        activity.startTime = start;
+        activity.additionalMetrics = metrics;
+        activity.createdAt = start.plusHours(1);
+        activity.updatedAt = start.plusHours(1);
+        event = ActivityEvent.newBuilder()
+                .setId(activity.id)
+                .setUserId(activity.userId)
+                .setType(ActivityType.RUNNING)
+                .setDuration(56)
+                .setCaloriesBurned(640)
+                .setStartTime(start)
+                .setMetrics(ActivityMetrics.newBuilder()
+                        .setHeartRateAvg(146)
+                        .setHeartRateMax(178)
+                        .setDistance(10.4)
+                        .setPace(5.35)
+                        .setSteps(11_820)
+                        .setElevationGain(86.0)
+                        .setOther(ActivityEventMetrics.encodeOther(Map.of("weather", "sunny")))
+                        .build())
+                .setCreatedAt(start.plusHours(1))
+                .setUpdatedAt(start.plusHours(1))
+                .build();
+
+        json = serializeJson();
+        avro = serializeAvro();
+        System.out.printf("%nPayload size: JSON %d bytes, Avro %d bytes%n", json.length, avro.length);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() {
+        try {
+            return jsonWriter.writeValueAsBytes(activity);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeAvro() {
+        return avroSerializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public JsonActivity deserializeJson() throws Exception {
+        return jsonReader.readValue(json);
+    }
+
+    @Benchmark
+    public ActivityEvent deserializeAvro() {
+        return avroDeserializer.deserialize(TOPIC, avro);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ActivityEventSerializationBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
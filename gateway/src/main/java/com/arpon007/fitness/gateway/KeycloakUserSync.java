@@ -1,79 +1,63 @@
 package com.arpon007.fitness.gateway;
 
 import com.arpon007.fitness.gateway.user.RegisterRequest;
-import com.arpon007.fitness.gateway.user.UserService;
-import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
+import com.arpon007.fitness.gateway.user.UserSyncService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
+/**
+ * Registers the caller in USER-SERVICE on first sight and forwards its Keycloak id as
+ * X-User-ID. Claims come from the JWT the resource server has already decoded and
+ * verified, so the token is never parsed a second time; requests without a JWT principal
+ * pass straight through.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class KeycloakUserSync implements WebFilter {
-    private final UserService userService;
+    private final UserSyncService userSyncService;
 
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        String token = exchange.getRequest().getHeaders().getFirst("Authorization");
-        String userId = exchange.getRequest().getHeaders().getFirst("X-User-ID");
-        RegisterRequest registerRequest = getUserDetails(token);
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .map(authentication -> ((JwtAuthenticationToken) authentication).getToken())
+                .flatMap(jwt -> syncAndForward(jwt, exchange, chain))
+                .switchIfEmpty(Mono.defer(() -> chain.filter(exchange)));
+    }
 
+    private Mono<Void> syncAndForward(Jwt jwt, ServerWebExchange exchange, WebFilterChain chain) {
+        String userId = jwt.getSubject();
         if (userId == null) {
-            userId = registerRequest.getKeyloakId();
-        }
-
-        if (userId != null && token != null){
-            String finalUserId = userId;
-            return userService.validateUser(userId)
-                    .flatMap(exist -> {
-                        if (!exist) {
-                            // Register User
-
-                            if (registerRequest != null) {
-                                return userService.registerUser(registerRequest)
-                                        .then(Mono.empty());
-                            } else {
-                                return Mono.empty();
-                            }
-                        } else {
-                            log.info("User already exist, Skipping sync.");
-                            return Mono.empty();
-                        }
-                    })
-                    .then(Mono.defer(() -> {
-                        ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
-                                .header("X-User-ID", finalUserId)
-                                .build();
-                        return chain.filter(exchange.mutate().request(mutatedRequest).build());
-                    }));
+            return chain.filter(exchange);
         }
-        return chain.filter(exchange);
+        return userSyncService.ensureRegistered(userId, () -> getUserDetails(jwt))
+                .then(Mono.defer(() -> {
+                    // The verified subject wins over any X-User-ID the client sent itself
+                    ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
+                            .headers(headers -> headers.set("X-User-ID", userId))
+                            .build();
+                    return chain.filter(exchange.mutate().request(mutatedRequest).build());
+                }));
     }
 
-    private RegisterRequest getUserDetails(String token) {
-        try {
-            String tokenWithoutBearer = token.replace("Bearer ", "").trim();
-            SignedJWT signedJWT = SignedJWT.parse(tokenWithoutBearer);
-            JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
-
-            RegisterRequest registerRequest = new RegisterRequest();
-            registerRequest.setEmail(claims.getStringClaim("email"));
-            registerRequest.setKeyloakId(claims.getStringClaim("sub"));
-            registerRequest.setPassword("dummy@123123");
-            registerRequest.setFirstName(claims.getStringClaim("given_name"));
-            registerRequest.setLastName(claims.getStringClaim("family_name"));
-            return registerRequest;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-
+    private RegisterRequest getUserDetails(Jwt jwt) {
+        RegisterRequest registerRequest = new RegisterRequest();
+        registerRequest.setEmail(jwt.getClaimAsString("email"));
+        registerRequest.setKeyloakId(jwt.getSubject());
+        registerRequest.setPassword("dummy@123123");
+        registerRequest.setFirstName(jwt.getClaimAsString("given_name"));
+        registerRequest.setLastName(jwt.getClaimAsString("family_name"));
+        return registerRequest;
     }
 }
-
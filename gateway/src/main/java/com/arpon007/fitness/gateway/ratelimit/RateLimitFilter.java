@@ -0,0 +1,115 @@
+package com.arpon007.fitness.gateway.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Throttles each user per route with the token buckets configured in
+ * {@link RateLimitProperties}, keyed on the X-User-ID that KeycloakUserSync forwards.
+ * Requests over the limit get 429 with Retry-After before reaching the downstream service.
+ */
+@Component
+@Slf4j
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitFilter implements GlobalFilter, Ordered {
+    private static final String DEFAULT_ROUTE = "default";
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Timer decisionTimer;
+    private final Map<String, RouteLimiter> limiters = new ConcurrentHashMap<>();
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.decisionTimer = Timer.builder("gateway.ratelimit.decision")
+                .description("Time spent deciding whether a request is within its rate limit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String userId = exchange.getRequest().getHeaders().getFirst("X-User-ID");
+        if (!properties.isEnabled() || userId == null) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : DEFAULT_ROUTE;
+
+        long start = System.nanoTime();
+        RouteLimiter limiter = limiters.get(routeId);
+        if (limiter == null) {
+            limiter = limiters.computeIfAbsent(routeId, this::createLimiter);
+        }
+        long wait = limiter.store.tryAcquire(userId, start);
+        decisionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (wait == 0) {
+            limiter.allowed.increment();
+            return chain.filter(exchange);
+        }
+        limiter.rejected.increment();
+        log.debug("Rate limit exceeded for user {} on route {}", userId, routeId);
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999L));
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        return response.setComplete();
+    }
+
+    @Override
+    public int getOrder() {
+        // Reject before any other filter spends work on the request
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.rate-limit.sweep-interval:1m}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        long idle = properties.getIdleTimeout().toNanos();
+        limiters.values().forEach(limiter -> limiter.store.evictIdle(now, idle));
+    }
+
+    private RouteLimiter createLimiter(String routeId) {
+        RateLimitProperties.Limit limit = properties.getRoutes().getOrDefault(routeId, properties.getDefaultLimit());
+        TokenBucketStore store = new TokenBucketStore(limit.getCapacity(), limit.getRefillPerSecond(),
+                properties.getStripes());
+        Gauge.builder("gateway.ratelimit.buckets", store, TokenBucketStore::size)
+                .description("Users with a live rate-limit bucket")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        return new RouteLimiter(store,
+                meterRegistry.counter("gateway.ratelimit.requests", "route", routeId, "outcome", "allowed"),
+                meterRegistry.counter("gateway.ratelimit.requests", "route", routeId, "outcome", "rejected"));
+    }
+
+    @RequiredArgsConstructor
+    private static final class RouteLimiter {
+        private final TokenBucketStore store;
+        private final Counter allowed;
+        private final Counter rejected;
+    }
+}
@@ -0,0 +1,31 @@
+package com.arpon007.fitness.gateway.ratelimit;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Token-bucket limits applied per user. {@code routes} is keyed by gateway route id;
+ * routes without an entry use {@code default-limit}.
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    private Limit defaultLimit = new Limit();
+    private Map<String, Limit> routes = new HashMap<>();
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private int stripes = 16;
+
+    @Data
+    public static class Limit {
+        /** Requests a user may burst before being throttled. */
+        private int capacity = 20;
+        /** Sustained requests per second once the burst is spent. */
+        private double refillPerSecond = 10;
+    }
+}
@@ -0,0 +1,82 @@
+package com.arpon007.fitness.gateway.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory token buckets, one per key, for a single limit. Each bucket is one
+ * {@link AtomicLong} holding its theoretical arrival time (the instant the bucket would
+ * be full again, GCRA style), so taking a token is a single compare-and-set with no locks
+ * and no allocation once the bucket exists. Buckets are spread over independent maps so
+ * that idle eviction sweeps one stripe at a time.
+ */
+public class TokenBucketStore {
+    private final ConcurrentHashMap<String, AtomicLong>[] stripes;
+    private final long emissionInterval;
+    private final long burstTolerance;
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketStore(int capacity, double refillPerSecond, int stripeCount) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity and refill rate must be positive");
+        }
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.emissionInterval = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burstTolerance = emissionInterval * capacity;
+    }
+
+    /**
+     * Takes one token from the bucket of {@code key} at {@code now} (nanoTime).
+     *
+     * @return 0 when the token was granted, otherwise the nanoseconds until one is available
+     */
+    public long tryAcquire(String key, long now) {
+        ConcurrentHashMap<String, AtomicLong> stripe = stripe(key);
+        AtomicLong bucket = stripe.get(key);
+        if (bucket == null) {
+            bucket = stripe.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+        }
+        for (;;) {
+            long stored = bucket.get();
+            long next = Math.max(stored, now) + emissionInterval;
+            long wait = next - now - burstTolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(stored, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have been full for longer than {@code idleNanos}. A request racing
+     * the removal may be granted one token from the discarded bucket, which is harmless.
+     */
+    public void evictIdle(long now, long idleNanos) {
+        long threshold = now - idleNanos;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            stripe.values().removeIf(bucket -> bucket.get() < threshold);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private ConcurrentHashMap<String, AtomicLong> stripe(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+}
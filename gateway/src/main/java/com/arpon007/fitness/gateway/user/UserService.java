@@ -1,42 +1,72 @@
 package com.arpon007.fitness.gateway.user;
 
-import lombok.RequiredArgsConstructor;
+import com.arpon007.fitness.commons.resilience.ResilientCalls;
+import com.arpon007.fitness.commons.user.UserValidationBatcher;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UserService {
+    private static final String USER_SERVICE = "user-service";
+    private static final ParameterizedTypeReference<Map<String, Boolean>> VALIDATIONS =
+            new ParameterizedTypeReference<>() {
+            };
 
     private final WebClient userServiceWebClient;
+    private final ResilientCalls resilientCalls;
+    private final UserValidationBatcher batcher;
+
+    public UserService(WebClient userServiceWebClient,
+                       ResilientCalls resilientCalls,
+                       @Value("${gateway.user-sync.batch.window:5ms}") Duration batchWindow,
+                       @Value("${gateway.user-sync.batch.max-size:100}") int batchMaxSize) {
+        this.userServiceWebClient = userServiceWebClient;
+        this.resilientCalls = resilientCalls;
+        this.batcher = new UserValidationBatcher(this::validateUsers, batchWindow, batchMaxSize);
+    }
 
+    /**
+     * Validates through {@link #validateUsers}, together with the other users asked for
+     * within {@code gateway.user-sync.batch.window}.
+     */
     public Mono<Boolean> validateUser(String userId) {
-        log.info("Calling User Validation API for userId: {}", userId);
-        return userServiceWebClient.get()
-                .uri("/api/users/{userId}/validate", userId)
-                .retrieve()
-                .bodyToMono(Boolean.class)
+        return batcher.validate(userId);
+    }
+
+    public Mono<Map<String, Boolean>> validateUsers(Collection<String> userIds) {
+        log.info("Calling User Validation API for {} users", userIds.size());
+        return resilientCalls.call(USER_SERVICE, userServiceWebClient.post()
+                        .uri("/api/users/validate")
+                        .bodyValue(userIds)
+                        .retrieve()
+                        .bodyToMono(VALIDATIONS))
                 .onErrorResume(WebClientResponseException.class, e -> {
                     if (e.getStatusCode() == HttpStatus.NOT_FOUND)
-                        return Mono.error(new RuntimeException("User Not Found: " + userId));
+                        return Mono.error(new RuntimeException("User validation not found: " + e.getMessage()));
                     else if (e.getStatusCode() == HttpStatus.BAD_REQUEST)
-                        return Mono.error(new RuntimeException("Invalid Request: " + userId));
+                        return Mono.error(new RuntimeException("Invalid Request: " + e.getMessage()));
                     return Mono.error(new RuntimeException("Unexpected error: " + e.getMessage()));
                 });
     }
 
     public Mono<UserResponse> registerUser(RegisterRequest request) {
         log.info("Calling User Registration API for email: {}", request.getEmail());
-        return userServiceWebClient.post()
-                .uri("/api/users/register")
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(UserResponse.class)
+        return resilientCalls.call(USER_SERVICE, userServiceWebClient.post()
+                        .uri("/api/users/register")
+                        .bodyValue(request)
+                        .retrieve()
+                        .bodyToMono(UserResponse.class))
                 .onErrorResume(WebClientResponseException.class, e -> {
                     if (e.getStatusCode() == HttpStatus.BAD_REQUEST)
                         return Mono.error(new RuntimeException("Bad Request: " + e.getMessage()));
@@ -0,0 +1,76 @@
+package com.arpon007.fitness.gateway.user;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Makes sure a Keycloak user exists in USER-SERVICE, calling it at most once per user
+ * while the answer is cached. Concurrent first requests for the same user share a single
+ * validate-and-register call instead of racing each other into duplicate registrations.
+ * When USER-SERVICE cannot be reached the request is let through unsynced by default
+ * ({@code gateway.user-sync.fail-open}); the downstream services validate users themselves.
+ */
+@Service
+@Slf4j
+public class UserSyncService {
+    private final UserService userService;
+    private final Cache<String, Boolean> knownUsers;
+    private final boolean failOpen;
+    private final ConcurrentMap<String, Mono<Void>> inFlight = new ConcurrentHashMap<>();
+
+    public UserSyncService(UserService userService,
+                           @Value("${gateway.user-sync.cache.max-size:100000}") long maxSize,
+                           @Value("${gateway.user-sync.cache.ttl:30m}") Duration ttl,
+                           @Value("${gateway.user-sync.fail-open:true}") boolean failOpen) {
+        this.userService = userService;
+        this.failOpen = failOpen;
+        this.knownUsers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Completes once {@code userId} is known to USER-SERVICE. {@code registerRequest} is only
+     * invoked when the user turns out to be missing.
+     */
+    public Mono<Void> ensureRegistered(String userId, Supplier<RegisterRequest> registerRequest) {
+        if (knownUsers.getIfPresent(userId) != null) {
+            return Mono.empty();
+        }
+        return inFlight.computeIfAbsent(userId, id -> sync(id, registerRequest)
+                .doFinally(signal -> inFlight.remove(id))
+                // Later callers join the running call; a failure is not remembered beyond it
+                .cache());
+    }
+
+    private Mono<Void> sync(String userId, Supplier<RegisterRequest> registerRequest) {
+        return userService.validateUser(userId)
+                .flatMap(exist -> {
+                    if (exist) {
+                        log.info("User already exist, Skipping sync.");
+                        knownUsers.put(userId, Boolean.TRUE);
+                        return Mono.empty();
+                    }
+                    return userService.registerUser(registerRequest.get())
+                            .doOnSuccess(registered -> knownUsers.put(userId, Boolean.TRUE))
+                            .then();
+                })
+                .then()
+                .onErrorResume(e -> failOpen, e -> {
+                    log.warn("User sync failed for {}, letting the request through: {}", userId, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,372 @@
+package com.arpon007.fitness.gateway.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.arpon007.fitness.gateway.GatewayApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Latency (p99 in the sample-time percentiles) of {@code /api/activities} and
+ * {@code /api/recommendations/user/{userId}} through the whole gateway, security and user sync
+ * included, from 8 client threads. Upstreams, the JWK set and USER-SERVICE validation are served
+ * by a local stub: 100 activities and 20 recommendations per response. {@code after} runs
+ * {@code gateway-service.yml} as it is (HTTP/2, compression, fixed upstream pool); {@code before}
+ * turns those back to the defaults and talks HTTP/1.1. Both send {@code benchmark.accept-encoding}
+ * ({@code br, gzip} by default) as {@code Accept-Encoding}.
+ * Clients reach the gateway through a TCP relay that models their link: responses share
+ * {@code benchmark.link-mbps} (20 by default, 0 for unlimited), so latency includes transfer time
+ * as it would off the loopback interface. The relay also counts bytes on the wire per response,
+ * headers and framing included, which are printed during setup. Config files are read from {@code benchmark.config-dir}.
+ * Run {@link #main} from the gateway directory after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class GatewayCompressionBenchmark {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SUBJECT = "5f1c9a2e-7d4b-4c1e-9a61-3b2f8e0d4c77";
+    private static final String ACTIVITIES = "/api/activities?userId=" + SUBJECT;
+    private static final String RECOMMENDATIONS = "/api/recommendations/user/" + SUBJECT;
+    private static final int WIRE_SAMPLES = 50;
+
+    @Param({"before", "after"})
+    public String setup;
+
+    private ExecutorService upstreamExecutor;
+    private HttpServer upstream;
+    private ConfigurableApplicationContext context;
+    private LinkRelay relay;
+    private HttpClient client;
+    private String gateway;
+    private String bearer;
+    private String acceptEncoding;
+
+    @Setup
+    public void setUp() throws Exception {
+        String configDir = System.getProperty("benchmark.config-dir", "../configServer/src/main/resources/config");
+        acceptEncoding = System.getProperty("benchmark.accept-encoding", "br, gzip");
+        RSAKey key = new RSAKeyGenerator(2048).keyID("benchmark").generate();
+        bearer = "Bearer " + token(key);
+
+        byte[] activities = MAPPER.writeValueAsBytes(activities(100));
+        byte[] recommendations = MAPPER.writeValueAsBytes(recommendations(20));
+        byte[] jwks = new JWKSet(key.toPublicJWK()).toString().getBytes(StandardCharsets.UTF_8);
+        byte[] validation = MAPPER.writeValueAsBytes(Map.of(SUBJECT, true));
+        // Otherwise Nagle's algorithm holds back the stub's response bodies for a delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        upstreamExecutor = Executors.newFixedThreadPool(8);
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstream.setExecutor(upstreamExecutor);
+        upstream.createContext("/jwks", exchange -> respond(exchange, jwks));
+        upstream.createContext("/api/users/validate", exchange -> respond(exchange, validation));
+        upstream.createContext("/api/activities", exchange -> respond(exchange, activities));
+        upstream.createContext("/api/recommendations/user/", exchange -> respond(exchange, recommendations));
+        upstream.start();
+        String stub = "http://localhost:" + upstream.getAddress().getPort();
+
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.config.import=file:" + configDir + "/gateway-service.yml",
+                "--spring.cloud.config.enabled=false",
+                "--eureka.client.enabled=false",
+                "--server.port=0",
+                "--spring.security.oauth2.resourceserver.jwt.jwk-set-uri=" + stub + "/jwks",
+                "--spring.cloud.discovery.client.simple.instances[USER-SERVICE][0].uri=" + stub,
+                "--spring.cloud.discovery.client.simple.instances[ACTIVITY-SERVICE][0].uri=" + stub,
+                "--spring.cloud.discovery.client.simple.instances[AI-SERVICE][0].uri=" + stub,
+                "--gateway.rate-limit.enabled=false"));
+        if ("before".equals(setup)) {
+            args.addAll(List.of(
+                    "--server.http2.enabled=false",
+                    "--server.compression.enabled=false",
+                    "--spring.cloud.gateway.server.webflux.httpclient.pool.type=ELASTIC"));
+        }
+        context = new SpringApplicationBuilder(GatewayApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .run(args.toArray(String[]::new));
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        relay = new LinkRelay(port, Integer.getInteger("benchmark.link-mbps", 20));
+        gateway = "http://localhost:" + relay.port();
+
+        HttpClient.Version version = "after".equals(setup) ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+        client = HttpClient.newBuilder().version(version).build();
+
+        System.out.printf("%n%s: upstream bodies %d B (activities), %d B (recommendations)%n",
+                setup, activities.length, recommendations.length);
+        Map<String, String> paths = new LinkedHashMap<>();
+        paths.put("/api/activities", ACTIVITIES);
+        paths.put("/api/recommendations/user/{userId}", RECOMMENDATIONS);
+        for (Map.Entry<String, String> path : paths.entrySet()) {
+            // The first exchange also carries the HTTP/2 upgrade and settings
+            HttpResponse<byte[]> first = send(client, gateway + path.getValue());
+            long before = relay.downstreamBytes();
+            for (int i = 0; i < WIRE_SAMPLES; i++) {
+                send(client, gateway + path.getValue());
+            }
+            System.out.printf("%s %s: %s, Content-Encoding %s, %d B on the wire per response%n", setup,
+                    path.getKey(), first.version(), first.headers().firstValue("Content-Encoding").orElse("none"),
+                    (relay.downstreamBytes() - before) / WIRE_SAMPLES);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        relay.close();
+        context.close();
+        upstream.stop(0);
+        upstreamExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int activities() throws Exception {
+        return send(client, gateway + ACTIVITIES).body().length;
+    }
+
+    @Benchmark
+    public int recommendations() throws Exception {
+        return send(client, gateway + RECOMMENDATIONS).body().length;
+    }
+
+    private HttpResponse<byte[]> send(HttpClient httpClient, String uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+                .header("Authorization", bearer)
+                .header("Accept-Encoding", acceptEncoding)
+                .build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(uri + " answered " + response.statusCode());
+        }
+        return response;
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String token(RSAKey key) throws Exception {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(SUBJECT)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(Duration.ofHours(1))))
+                .claim("email", "runner@example.com")
+                .claim("given_name", "Ada")
+                .claim("family_name", "Runner")
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    // Shaped like ActivityResponse, with the spread of values a real history has
+    private static List<Map<String, Object>> activities(int count) {
+        Random random = new Random(42);
+        String[] types = {"RUNNING", "WALKING", "CYCLING", "SWIMMING", "WEIGHT_TRAINING", "YOGA", "HIIT", "CARDIO"};
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 6, 30);
+        List<Map<String, Object>> activities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime startTime = start.plusMinutes(i * 613L);
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("heartRateAvg", 110 + random.nextInt(50));
+            metrics.put("heartRateMax", 160 + random.nextInt(30));
+            metrics.put("steps", random.nextInt(15_000));
+            metrics.put("distance", Math.round(random.nextDouble() * 2_000) / 100.0);
+            Map<String, Object> activity = new LinkedHashMap<>();
+            activity.put("id", new UUID(random.nextLong(), random.nextLong()).toString());
+            activity.put("userId", SUBJECT);
+            activity.put("type", types[random.nextInt(types.length)]);
+            activity.put("duration", 15 + random.nextInt(120));
+            activity.put("caloriesBurned", 80 + random.nextInt(900));
+            activity.put("startTime", startTime.toString());
+            activity.put("additionalMetrics", metrics);
+            activity.put("createdAt", startTime.plusMinutes(90).toString());
+            activity.put("updatedAt", startTime.plusMinutes(90).toString());
+            activities.add(activity);
+        }
+        return activities;
+    }
+
+    // Shaped like Recommendation: generated prose, which repeats itself across entries
+    private static List<Map<String, Object>> recommendations(int count) {
+        Random random = new Random(7);
+        List<Map<String, Object>> recommendations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int pace = 5 + random.nextInt(3);
+            int heartRate = 140 + random.nextInt(30);
+            Map<String, Object> recommendation = new LinkedHashMap<>();
+            recommendation.put("id", new UUID(random.nextLong(), random.nextLong()).toString());
+            recommendation.put("activityId", new UUID(random.nextLong(), random.nextLong()).toString());
+            recommendation.put("userId", SUBJECT);
+            recommendation.put("activityType", "RUNNING");
+            recommendation.put("recommendation", ("Overall: a steady session at around %d min/km with an average heart "
+                    + "rate of %d bpm, which puts most of the run in the aerobic zone. Pace: your splits were even, "
+                    + "which shows good pacing discipline; try one faster interval block per week. Heart rate: "
+                    + "%d bpm is sustainable for this duration, so there is room to extend the distance gradually. "
+                    + "Calories: the energy expenditure matches the duration and intensity of the session.")
+                    .formatted(pace, heartRate, heartRate));
+            recommendation.put("improvements", List.of(
+                    "Pacing: Add 4 x 400 m intervals at %d:30 min/km once a week".formatted(pace - 1),
+                    "Endurance: Increase your long run by 10%% per week, up to %d km".formatted(12 + random.nextInt(10)),
+                    "Recovery: Keep easy runs below %d bpm".formatted(heartRate - 10)));
+            recommendation.put("suggestions", List.of(
+                    "Tempo Run: 20 minutes at a comfortably hard effort after a 10 minute warm-up",
+                    "Hill Repeats: 6 x 60 seconds uphill with jog-down recovery",
+                    "Mobility: 10 minutes of dynamic stretching before each run"));
+            recommendation.put("safety", List.of(
+                    "Always warm up before the session and cool down afterwards",
+                    "Stay hydrated and stop if you feel dizzy or unwell",
+                    "Increase weekly volume gradually to avoid overuse injuries"));
+            recommendation.put("createdAt", LocalDateTime.of(2025, 3, 1, 8, 0).plusHours(i * 17L).toString());
+            recommendations.add(recommendation);
+        }
+        return recommendations;
+    }
+
+    /**
+     * Forwards TCP connections to the gateway, counting the bytes it sends back and pacing them
+     * as if all connections shared one link of the given bandwidth.
+     */
+    private static final class LinkRelay implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final long bytesPerSecond;
+        private final AtomicLong downstream = new AtomicLong();
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        // Guarded by this
+        private long linkFreeAt;
+
+        LinkRelay(int targetPort, int megabitsPerSecond) throws IOException {
+            serverSocket = new ServerSocket(0);
+            bytesPerSecond = megabitsPerSecond * 1_000_000L / 8;
+            executor.execute(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket client = serverSocket.accept();
+                        Socket target = new Socket("localhost", targetPort);
+                        client.setTcpNoDelay(true);
+                        target.setTcpNoDelay(true);
+                        executor.execute(() -> copy(client, target, false));
+                        executor.execute(() -> copy(target, client, true));
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        long downstreamBytes() {
+            return downstream.get();
+        }
+
+        private void copy(Socket from, Socket to, boolean fromGateway) {
+            byte[] buffer = new byte[16 * 1024];
+            try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    if (fromGateway) {
+                        // Counted before it is forwarded, so a response is fully counted once the client has it
+                        downstream.addAndGet(read);
+                        pace(read);
+                    }
+                    out.write(buffer, 0, read);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // The other direction closed the connection
+            }
+        }
+
+        private void pace(int bytes) {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            long delay;
+            synchronized (this) {
+                long now = System.nanoTime();
+                linkFreeAt = Math.max(linkFreeAt, now) + bytes * 1_000_000_000L / bytesPerSecond;
+                delay = linkFreeAt - now;
+            }
+            LockSupport.parkNanos(delay);
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            executor.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GatewayCompressionBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
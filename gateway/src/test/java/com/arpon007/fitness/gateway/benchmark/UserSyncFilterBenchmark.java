@@ -0,0 +1,161 @@
+package com.arpon007.fitness.gateway.benchmark;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.arpon007.fitness.gateway.KeycloakUserSync;
+import com.arpon007.fitness.gateway.user.RegisterRequest;
+import com.arpon007.fitness.gateway.user.UserService;
+import com.arpon007.fitness.gateway.user.UserSyncService;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Per-request cost of the user sync filter for an already known user: the previous
+ * implementation, which re-parsed the bearer token from the Authorization header, against
+ * {@link KeycloakUserSync}, which reads the JWT already decoded by the resource server.
+ * Run {@link #main} from the gateway test classpath after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSyncFilterBenchmark {
+    private static final String SUBJECT = "5f1c9a2e-7d4b-4c1e-9a61-3b2f8e0d4c77";
+    private static final WebFilterChain CHAIN = exchange -> Mono.empty();
+
+    private ServerWebExchange authenticatedExchange;
+    private ServerWebExchange anonymousExchange;
+    private JwtAuthenticationToken authentication;
+    private UserSyncService userSyncService;
+    private KeycloakUserSync filter;
+
+    @Setup
+    public void setUp() throws Exception {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(SUBJECT)
+                .issuer("http://localhost:8181/realms/fitness-app")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(Duration.ofHours(1))))
+                .claim("email", "runner@example.com")
+                .claim("given_name", "Ada")
+                .claim("family_name", "Runner")
+                .claim("preferred_username", "runner")
+                .build();
+        SignedJWT signed = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        signed.sign(new MACSigner(new byte[32]));
+        String token = signed.serialize();
+        // Filters only mutate copies of the exchange, so one instance serves every invocation
+        authenticatedExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/activities")
+                .header("Authorization", "Bearer " + token));
+        anonymousExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/activities"));
+
+        Jwt jwt = Jwt.withTokenValue(token)
+                .header("alg", "HS256")
+                .claims(map -> map.putAll(claims.getClaims()))
+                .issuedAt(now)
+                .expiresAt(now.plus(Duration.ofHours(1)))
+                .build();
+        authentication = new JwtAuthenticationToken(jwt);
+
+        UserService userService = mock(UserService.class);
+        when(userService.validateUser(anyString())).thenReturn(Mono.just(true));
+        userSyncService = new UserSyncService(userService, 1000, Duration.ofHours(1), true);
+        userSyncService.ensureRegistered(SUBJECT, () -> null).block();
+        filter = new KeycloakUserSync(userSyncService);
+    }
+
+    @Benchmark
+    public Object reparseAuthorizationHeader() {
+        return legacyFilter(authenticatedExchange, CHAIN).block();
+    }
+
+    @Benchmark
+    public Object securityContextPrincipal() {
+        return filter.filter(authenticatedExchange, CHAIN)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication))
+                .block();
+    }
+
+    @Benchmark
+    public Object noPrincipal() {
+        return filter.filter(anonymousExchange, CHAIN).block();
+    }
+
+    // The filter as it was before it read the security context
+    private Mono<Void> legacyFilter(ServerWebExchange exchange, WebFilterChain chain) {
+        String token = exchange.getRequest().getHeaders().getFirst("Authorization");
+        String userId = exchange.getRequest().getHeaders().getFirst("X-User-ID");
+        RegisterRequest registerRequest = legacyUserDetails(token);
+        if (userId == null) {
+            userId = registerRequest.getKeyloakId();
+        }
+        String finalUserId = userId;
+        return userSyncService.ensureRegistered(userId, () -> registerRequest)
+                .then(Mono.defer(() -> {
+                    ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
+                            .header("X-User-ID", finalUserId)
+                            .build();
+                    return chain.filter(exchange.mutate().request(mutatedRequest).build());
+                }));
+    }
+
+    private static RegisterRequest legacyUserDetails(String token) {
+        try {
+            SignedJWT signedJWT = SignedJWT.parse(token.replace("Bearer ", "").trim());
+            JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
+            RegisterRequest registerRequest = new RegisterRequest();
+            registerRequest.setEmail(claims.getStringClaim("email"));
+            registerRequest.setKeyloakId(claims.getStringClaim("sub"));
+            registerRequest.setPassword("dummy@123123");
+            registerRequest.setFirstName(claims.getStringClaim("given_name"));
+            registerRequest.setLastName(claims.getStringClaim("family_name"));
+            return registerRequest;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserSyncFilterBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
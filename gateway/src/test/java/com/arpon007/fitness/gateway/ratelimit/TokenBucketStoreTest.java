@@ -0,0 +1,40 @@
+package com.arpon007.fitness.gateway.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketStoreTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void grantsBurstThenRefillsAtConfiguredRate() {
+        TokenBucketStore store = new TokenBucketStore(3, 1, 4);
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, store.tryAcquire("user", now));
+        }
+        long wait = store.tryAcquire("user", now);
+        assertEquals(SECOND, wait);
+
+        assertEquals(0, store.tryAcquire("user", now + wait));
+        assertTrue(store.tryAcquire("user", now + wait) > 0);
+        assertEquals(0, store.tryAcquire("other", now));
+    }
+
+    @Test
+    void evictsOnlyBucketsIdleLongerThanTimeout() {
+        TokenBucketStore store = new TokenBucketStore(2, 1, 4);
+        long now = 1_000 * SECOND;
+        store.tryAcquire("idle", now);
+        store.tryAcquire("busy", now + 50 * SECOND);
+
+        store.evictIdle(now + 60 * SECOND, 30 * SECOND);
+
+        assertEquals(1, store.size());
+    }
+}
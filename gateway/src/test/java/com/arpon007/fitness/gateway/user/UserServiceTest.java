@@ -0,0 +1,80 @@
+package com.arpon007.fitness.gateway.user;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.arpon007.fitness.commons.resilience.ResilientCalls;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import reactor.core.publisher.Flux;
+
+class UserServiceTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private HttpServer server;
+    private UserService userService;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/users/validate", exchange -> {
+            calls.incrementAndGet();
+            List<String> ids = MAPPER.readValue(exchange.getRequestBody(), new TypeReference<List<String>>() {
+            });
+            Map<String, Boolean> answers = new HashMap<>();
+            ids.forEach(id -> answers.put(id, id.startsWith("known-")));
+            byte[] body = MAPPER.writeValueAsBytes(answers);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + server.getAddress().getPort())
+                .build();
+        // The first call pays for Reactor Netty's startup, which can outlast the default 1s limit
+        ResilientCalls resilientCalls = new ResilientCalls(CircuitBreakerRegistry.ofDefaults(),
+                BulkheadRegistry.ofDefaults(), TimeLimiterRegistry.of(TimeLimiterConfig.custom()
+                        .timeoutDuration(Duration.ofSeconds(5))
+                        .build()));
+        userService = new UserService(webClient, resilientCalls, Duration.ofMillis(20), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void validationsRequestedTogetherShareOneCall() {
+        List<Boolean> answers = Flux.just("known-1", "unknown-2", "known-3", "known-1")
+                .flatMapSequential(userService::validateUser)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(answers).containsExactly(true, false, true, true);
+        assertThat(calls).hasValue(1);
+    }
+}